@@ -0,0 +1,65 @@
+package islands.backend;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rescoring a whole board from scratch, bit board dilation against replaying the moves
+ * through GameModel's union-find
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BitBoardBenchmark {
+
+    @Param({"11", "25", "501"})
+    int size;
+
+    @Param({"RANDOM", "STRIPES", "SPIRAL"})
+    FillPattern pattern;
+
+    private int[] moves;
+    private boolean[] colors;
+    private GameModel model;
+    private BitBoard board;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        moves = new int[size * size];
+        colors = new boolean[size * size];
+        pattern.fill(size, moves, colors);
+        model = new GameModel(size);
+        board = new BitBoard(size);
+        for (int i = 0; i < moves.length / 2; i++) {
+            board.set(moves[i] / size, moves[i] % size, colors[i]);
+        }
+    }
+
+    /**
+     * Both scores of a half filled board counted on the bit board
+     */
+    @Benchmark
+    public int bitBoardScores() {
+        return board.islandCount(GameModel.WHITE) - board.islandCount(GameModel.BLACK);
+    }
+
+    /**
+     * Both edge to edge checks of a half filled board on the bit board
+     */
+    @Benchmark
+    public boolean bitBoardSpans() {
+        return board.spans(GameModel.WHITE) | board.spans(GameModel.BLACK);
+    }
+
+    /**
+     * The same scores by replaying the half board into a GameModel
+     */
+    @Benchmark
+    public int replayScores() {
+        model.reset();
+        for (int i = 0; i < moves.length / 2; i++) {
+            model.makePlay(moves[i] / size, moves[i] % size, colors[i]);
+        }
+        return model.whiteScore() - model.blackScore();
+    }
+}
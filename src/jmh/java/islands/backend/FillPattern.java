@@ -0,0 +1,95 @@
+package islands.backend;
+
+import java.util.SplittableRandom;
+
+/**
+ * Orders in which the benchmarks fill a whole board.
+ * Moves are encoded as row * size + col, colours run parallel to them.
+ */
+public enum FillPattern {
+
+    /**
+     * every cell in shuffled order, colours alternating like a real game
+     */
+    RANDOM {
+        @Override
+        void fill(int size, int[] moves, boolean[] colors) {
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = i;
+            }
+            SplittableRandom random = new SplittableRandom(size);
+            for (int i = moves.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = moves[i];
+                moves[i] = moves[j];
+                moves[j] = tmp;
+            }
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = i % 2 == 0 ? GameModel.WHITE : GameModel.BLACK;
+            }
+        }
+    },
+
+    /**
+     * row by row with columns alternating colour, as in GameModelTest.EfficiencyTests
+     */
+    STRIPES {
+        @Override
+        void fill(int size, int[] moves, boolean[] colors) {
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = i;
+                colors[i] = (i % size) % 2 == 0 ? GameModel.WHITE : GameModel.BLACK;
+            }
+        }
+    },
+
+    /**
+     * inward spiral with each ring one colour, growing long single island snakes
+     */
+    SPIRAL {
+        @Override
+        void fill(int size, int[] moves, boolean[] colors) {
+            int top = 0;
+            int bottom = size - 1;
+            int left = 0;
+            int right = size - 1;
+            int i = 0;
+            boolean clr = GameModel.WHITE;
+            while (top <= bottom && left <= right) {
+                for (int col = left; col <= right; col++) {
+                    colors[i] = clr;
+                    moves[i++] = top * size + col;
+                }
+                for (int row = top + 1; row <= bottom; row++) {
+                    colors[i] = clr;
+                    moves[i++] = row * size + right;
+                }
+                if (top < bottom) {
+                    for (int col = right - 1; col >= left; col--) {
+                        colors[i] = clr;
+                        moves[i++] = bottom * size + col;
+                    }
+                }
+                if (left < right) {
+                    for (int row = bottom - 1; row > top; row--) {
+                        colors[i] = clr;
+                        moves[i++] = row * size + left;
+                    }
+                }
+                top++;
+                bottom--;
+                left++;
+                right--;
+                clr = !clr;
+            }
+        }
+    };
+
+    /**
+     * Write every cell of a size x size board into moves in this pattern's order
+     * @param size the square size of the board
+     * @param moves size*size cells to fill in
+     * @param colors size*size colours to fill in
+     */
+    abstract void fill(int size, int[] moves, boolean[] colors);
+}
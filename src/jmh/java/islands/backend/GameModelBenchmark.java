@@ -0,0 +1,123 @@
+package islands.backend;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks for the GameModel hot paths by board size and fill pattern.
+ * Run with the gc profiler (the default in build.gradle) to see the allocation rate.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameModelBenchmark {
+
+    @Param({"5", "11", "25", "501", "2500"})
+    int size;
+
+    @Param({"RANDOM", "STRIPES", "SPIRAL"})
+    FillPattern pattern;
+
+    private int[] moves;
+    private boolean[] colors;
+    private int cursor;
+    private GameModel model;
+    private GameModel publishing;
+    private GameModel filled;
+    private GameModel halfFilled;
+    private byte[] filledBoard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        moves = new int[size * size];
+        colors = new boolean[size * size];
+        pattern.fill(size, moves, colors);
+        model = new GameModel(size);
+        publishing = new GameModel(size);
+        publishing.setEvents(new GameEvents(1 << 16));
+        filled = playFirst(moves.length);
+        halfFilled = playFirst(moves.length / 2);
+        filledBoard = new byte[size * size];
+        for (int i = 0; i < moves.length; i++) {
+            filledBoard[moves[i]] = colors[i] == GameModel.WHITE ? GameModel.WHITE_CELL : GameModel.BLACK_CELL;
+        }
+    }
+
+    private GameModel playFirst(int count) {
+        GameModel played = new GameModel(size);
+        for (int i = 0; i < count; i++) {
+            played.makePlay(moves[i] / size, moves[i] % size, colors[i]);
+        }
+        return played;
+    }
+
+    private int nextCell() {
+        int index = moves[cursor];
+        if (++cursor == moves.length) {
+            cursor = 0;
+        }
+        return index;
+    }
+
+    /**
+     * One move in the pattern, the board is reset once it is full so the reset cost is spread over size*size moves
+     */
+    @Benchmark
+    public boolean makePlay() {
+        if (cursor == 0) {
+            model.reset();
+        }
+        boolean clr = colors[cursor];
+        int index = nextCell();
+        return model.makePlay(index / size, index % size, clr);
+    }
+
+    /**
+     * makePlay with an event ring attached and nobody reading it, the producer's whole cost
+     */
+    @Benchmark
+    public boolean makePlayPublishing() {
+        if (cursor == 0) {
+            publishing.reset();
+        }
+        boolean clr = colors[cursor];
+        int index = nextCell();
+        return publishing.makePlay(index / size, index % size, clr);
+    }
+
+    /**
+     * Build the full board in one go, to compare with size*size makePlay calls
+     */
+    @Benchmark
+    public GameModel load() {
+        return GameModel.load(filledBoard);
+    }
+
+    /**
+     * Probe one cell of a half filled board
+     */
+    @Benchmark
+    public boolean canPlay() {
+        int index = nextCell();
+        return halfFilled.canPlay(index / size, index % size);
+    }
+
+    /**
+     * Root of one cell's island on a full board
+     */
+    @Benchmark
+    public int find() {
+        return filled.find(nextCell());
+    }
+
+    /**
+     * Both score queries and the game over check
+     */
+    @Benchmark
+    public void scores(Blackhole bh) {
+        bh.consume(halfFilled.whiteScore());
+        bh.consume(halfFilled.blackScore());
+        bh.consume(halfFilled.isGameOver());
+    }
+}
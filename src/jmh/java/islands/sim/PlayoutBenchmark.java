@@ -0,0 +1,34 @@
+package islands.sim;
+
+import islands.backend.GameModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole random game from an empty board, the inner loop of the simulation engine
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlayoutBenchmark {
+
+    @Param({"5", "11", "25", "501", "2500"})
+    int size;
+
+    private GameModel model;
+    private SplittableRandom random;
+    private final MovePolicy policy = MovePolicy.random();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = new GameModel(size);
+        random = new SplittableRandom(size);
+    }
+
+    @Benchmark
+    public int randomGame() {
+        model.reset();
+        return SimulationEngine.playOut(model, policy, policy, GameModel.WHITE, random);
+    }
+}
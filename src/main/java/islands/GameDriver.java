@@ -1,16 +1,27 @@
 package islands;
 
 import islands.frontend.Game;
+import islands.server.GameServer;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
 
 /**
  * Main launching point for the Hex Game
  */
 public class GameDriver {
 
-    public static void main(String [] args) {
+    /**
+     * Open the game window, or with "server" and an optional port host games headless on localhost
+     * @param args nothing, or "server" and a port
+     * @throws IOException if the server's port can't be bound
+     */
+    public static void main(String [] args) throws IOException {
+        if (args.length > 0 && args[0].equals("server")) {
+            GameServer.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         JFrame frame = new JFrame("Islands of Hex");
 
         Game game = new Game();
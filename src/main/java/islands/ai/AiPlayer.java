@@ -0,0 +1,231 @@
+package islands.ai;
+
+import islands.backend.GameModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo Tree Search player. All threads grow one shared tree (tree parallelism),
+ * each on its own copy of the position; virtual loss keeps them on different paths.
+ * A playout descends the tree with UCT, expands a leaf, finishes the game with random
+ * moves and then takes every move back with undo, so playouts don't allocate.
+ * The winner of a playout is decided by island score, as in GameController.
+ */
+public class AiPlayer {
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int EXPANSION_VISITS = 2;
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+
+    private final long budgetMillis;
+    private final long budgetPlayouts;
+    private final int threads;
+    private ExecutorService pool;
+    private final AtomicLong seed;
+
+    private AiPlayer(long budgetMillis, long budgetPlayouts, int threads, long seed) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid thread count");
+        }
+        this.budgetMillis = budgetMillis;
+        this.budgetPlayouts = budgetPlayouts;
+        this.threads = threads;
+        this.seed = new AtomicLong(seed);
+    }
+
+    /**
+     * The search threads, started on the first pooled search
+     */
+    private synchronized ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "mcts-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * A player that searches for a fixed time on every core
+     * @param millis the time to think per move
+     * @return the player
+     */
+    public static AiPlayer withTimeBudget(long millis) {
+        return new AiPlayer(millis, Long.MAX_VALUE, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * A player that runs a fixed number of playouts per move, repeatable for a given seed on one thread
+     * @param playouts the playouts per move
+     * @param threads the number of search threads
+     * @param seed the seed for the random playouts
+     * @return the player
+     */
+    public static AiPlayer withPlayoutBudget(long playouts, int threads, long seed) {
+        return new AiPlayer(Long.MAX_VALUE, playouts, threads, seed);
+    }
+
+    /**
+     * Search the position and pick a move. Call this on the thread that owns position,
+     * which is only read; the search threads work on copies of it.
+     * @param position the current game
+     * @param clr the colour to move
+     * @return the chosen move with search statistics
+     * @throws IllegalStateException if the game is already over
+     */
+    public SearchResult chooseMove(GameModel position, boolean clr) {
+        checkPlayable(position);
+        long start = System.nanoTime();
+        long deadline = budgetMillis == Long.MAX_VALUE ? Long.MAX_VALUE : start + budgetMillis * 1_000_000;
+        Node root = new Node(-1, !clr);
+        AtomicLong playouts = new AtomicLong();
+        List<Callable<Void>> searches = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            GameModel board = position.copy();
+            SplittableRandom random = new SplittableRandom(seed.getAndIncrement() * SEED_MIX);
+            searches.add(() -> {
+                search(root, board, clr, random, playouts, deadline);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> search : pool().invokeAll(searches)) {
+                search.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Search interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+        return result(root, playouts.get(), start);
+    }
+
+    /**
+     * Search the position on the calling thread alone, ignoring the thread count and seed
+     * the player was made with. Suits callers that already spread their work over a pool,
+     * and is repeatable for a given source of randomness. Safe to call from several threads at once.
+     * @param position the current game, which is only read
+     * @param clr the colour to move
+     * @param random the source of randomness for the playouts
+     * @return the chosen move with search statistics
+     * @throws IllegalStateException if the game is already over
+     */
+    public SearchResult chooseMove(GameModel position, boolean clr, SplittableRandom random) {
+        checkPlayable(position);
+        long start = System.nanoTime();
+        long deadline = budgetMillis == Long.MAX_VALUE ? Long.MAX_VALUE : start + budgetMillis * 1_000_000;
+        Node root = new Node(-1, !clr);
+        AtomicLong playouts = new AtomicLong();
+        search(root, position.copy(), clr, random, playouts, deadline);
+        return result(root, playouts.get(), start);
+    }
+
+    private static void checkPlayable(GameModel position) {
+        if (position.isGameOver() || position.emptyCells().count() == 0) {
+            throw new IllegalStateException("No move to choose, the game is over");
+        }
+    }
+
+    /**
+     * The most visited move
+     */
+    private static SearchResult result(Node root, long playouts, long start) {
+        Node best = null;
+        for (Node child : root.children()) {
+            if (best == null || child.visits() > best.visits()) {
+                best = child;
+            }
+        }
+        double winRate = best.visits() == 0 ? 0 : best.score() / (2.0 * best.visits());
+        return new SearchResult(best.move, playouts, System.nanoTime() - start, winRate);
+    }
+
+    /**
+     * One thread's share of the search
+     */
+    private void search(Node root, GameModel board, boolean toMove, SplittableRandom random,
+                        AtomicLong playouts, long deadline) {
+        int size = board.size;
+        Node[] path = new Node[board.emptyCells().count() + 1];
+        path[0] = root;
+        root.expand(board, random);
+        while (playouts.getAndIncrement() < budgetPlayouts && System.nanoTime() < deadline) {
+            Node node = root;
+            root.addVisit();
+            int depth = 0;
+            boolean clr = toMove;
+            boolean over = false;
+
+            while (!over) {
+                Node[] children = node.children();
+                if (children == null) {
+                    if (node.visits() < EXPANSION_VISITS) {
+                        break;
+                    }
+                    children = node.expand(board, random);
+                }
+                node = select(children, node.visits());
+                node.addVisit();
+                path[++depth] = node;
+                over = board.makePlay(node.move / size, node.move % size, node.clr);
+                clr = !node.clr;
+            }
+
+            int played = depth;
+            while (!over) {
+                int index = board.randomEmptyCell(random);
+                over = board.makePlay(index / size, index % size, clr);
+                clr = !clr;
+                played++;
+            }
+
+            int white = board.whiteScore();
+            int black = board.blackScore();
+            for (int i = 1; i <= depth; i++) {
+                Node visited = path[i];
+                int mine = visited.clr == GameModel.WHITE ? white : black;
+                int theirs = visited.clr == GameModel.WHITE ? black : white;
+                visited.addScore(mine > theirs ? 2 : mine == theirs ? 1 : 0);
+            }
+            board.undo(played);
+        }
+        playouts.decrementAndGet();
+    }
+
+    /**
+     * The child with the best UCT value, unvisited children first
+     */
+    private static Node select(Node[] children, int parentVisits) {
+        double logVisits = Math.log(Math.max(1, parentVisits));
+        Node best = children[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits();
+            if (visits == 0) {
+                return child;
+            }
+            double value = child.score() / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stop the search threads, the player can't be used afterwards
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
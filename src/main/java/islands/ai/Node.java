@@ -0,0 +1,97 @@
+package islands.ai;
+
+import islands.backend.CellSet;
+import islands.backend.GameModel;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.SplittableRandom;
+
+/**
+ * A position in the shared search tree. Visits and score are updated with atomic adds so
+ * many threads can descend the same tree; score counts half points from the point of view
+ * of the player who made this node's move (2 for a win, 1 for a tie).
+ */
+final class Node {
+
+    private static final VarHandle VISITS;
+    private static final VarHandle SCORE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISITS = lookup.findVarHandle(Node.class, "visits", int.class);
+            SCORE = lookup.findVarHandle(Node.class, "score", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final int move;
+    final boolean clr;
+    private volatile Node[] children;
+    private volatile int visits;
+    private volatile int score;
+
+    /**
+     * @param move the cell played to reach this node, -1 for the root
+     * @param clr the colour that played move
+     */
+    Node(int move, boolean clr) {
+        this.move = move;
+        this.clr = clr;
+    }
+
+    Node[] children() {
+        return children;
+    }
+
+    /**
+     * Create a child for every empty cell of board, which must be at this node's position.
+     * Only the first thread to get here builds them, the children are shuffled so threads
+     * visiting fresh nodes spread out.
+     * @param board the position of this node
+     * @param random the calling thread's randomness
+     * @return the children
+     */
+    Node[] expand(GameModel board, SplittableRandom random) {
+        synchronized (this) {
+            if (children == null) {
+                CellSet empty = board.emptyCells();
+                Node[] created = new Node[empty.count()];
+                int i = 0;
+                for (int index = empty.nextCell(0); index >= 0; index = empty.nextCell(index + 1)) {
+                    created[i++] = new Node(index, !clr);
+                }
+                for (int j = created.length - 1; j > 0; j--) {
+                    int k = random.nextInt(j + 1);
+                    Node tmp = created[j];
+                    created[j] = created[k];
+                    created[k] = tmp;
+                }
+                children = created;
+            }
+            return children;
+        }
+    }
+
+    int visits() {
+        return visits;
+    }
+
+    int score() {
+        return score;
+    }
+
+    /**
+     * Count a visit before the playout result is known. Until the result is added it
+     * looks like a loss, which steers other threads away from this path (virtual loss).
+     */
+    void addVisit() {
+        VISITS.getAndAdd(this, 1);
+    }
+
+    void addScore(int halfPoints) {
+        SCORE.getAndAdd(this, halfPoints);
+    }
+}
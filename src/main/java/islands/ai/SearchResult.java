@@ -0,0 +1,57 @@
+package islands.ai;
+
+/**
+ * The move an AiPlayer chose and what the search cost
+ */
+public class SearchResult {
+
+    private final int move;
+    private final long playouts;
+    private final long elapsedNanos;
+    private final double winRate;
+
+    SearchResult(int move, long playouts, long elapsedNanos, double winRate) {
+        this.move = move;
+        this.playouts = playouts;
+        this.elapsedNanos = elapsedNanos;
+        this.winRate = winRate;
+    }
+
+    /**
+     * The chosen cell
+     * @return row * size + col
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * The share of playouts through the chosen move that the mover won, ties count half
+     * @return between 0 and 1
+     */
+    public double getWinRate() {
+        return winRate;
+    }
+
+    /**
+     * Search speed over all threads
+     * @return playouts per second
+     */
+    public double playoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("move %d after %d playouts in %.1f ms (%.0f playouts/sec, win rate %.2f)",
+                move, playouts, elapsedNanos / 1e6, playoutsPerSecond(), winRate);
+    }
+}
@@ -0,0 +1,296 @@
+package islands.backend;
+
+import java.util.Arrays;
+
+/**
+ * The pieces of a board as one packed bit string per colour, for whole board questions such as
+ * island counts and edge to edge connections. Unlike GameModel it keeps no union-find: every
+ * query is answered from scratch by growing regions with word parallel hex shifts, which makes
+ * it a cheap way to rescore many finished or loaded positions. Edge to edge checks touch each
+ * word once per round; island counts grow one island at a time, so they beat replaying the moves
+ * on small and medium boards but not on big boards broken into thousands of islands.
+ *
+ * Cell (row, col) is bit row * (size + 1) + col. The spare bit at the end of every row is never
+ * set, so a shift by one that runs off the end of a row lands there and is masked away without
+ * per column masks. The words are padded with zeros at both ends so every shift reads in bounds.
+ *
+ * Not thread safe: queries reuse the board's scratch buffers.
+ */
+public final class BitBoard {
+
+    private final int size;
+    private final int stride;
+    private final int wordCount;
+    private final int pad;
+    private final long[] white;
+    private final long[] black;
+    private final long[] region;
+    private final long[] grown;
+    private final long[] remaining;
+    private final long[] target;
+
+    /**
+     * An empty board
+     * @param size the length of one side of the board
+     * @throws IllegalArgumentException if size is less than one
+     */
+    public BitBoard(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid board size " + size);
+        }
+        this.size = size;
+        stride = size + 1;
+        wordCount = (size * stride + 63) >>> 6;
+        // a shift by stride + 1 reads up to this many words either side
+        pad = ((stride + 1) >>> 6) + 1;
+        int length = wordCount + 2 * pad;
+        white = new long[length];
+        black = new long[length];
+        region = new long[length];
+        grown = new long[length];
+        remaining = new long[length];
+        target = new long[length];
+    }
+
+    /**
+     * The pieces of a game, as they are now
+     * @param model the game
+     * @return a new bit board with the same pieces
+     */
+    public static BitBoard of(GameModel model) {
+        BitBoard board = new BitBoard(model.size);
+        for (int row = 0; row < model.size; row++) {
+            for (int col = 0; col < model.size; col++) {
+                byte cell = model.cell(row * model.size + col);
+                if (cell != GameModel.EMPTY) {
+                    board.set(row, col, cell == GameModel.WHITE_CELL);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * The length of one side of the board
+     * @return the board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Place a piece, replacing any piece already there
+     * @param row the row of the piece
+     * @param col the col of the piece
+     * @param clr WHITE or BLACK
+     * @throws IllegalArgumentException for invalid row and col
+     */
+    public void set(int row, int col, boolean clr) {
+        int bit = bit(row, col);
+        long mask = 1L << bit;
+        int word = pad + (bit >>> 6);
+        (clr == GameModel.WHITE ? white : black)[word] |= mask;
+        (clr == GameModel.WHITE ? black : white)[word] &= ~mask;
+    }
+
+    /**
+     * Take the piece off a cell, if there is one
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @throws IllegalArgumentException for invalid row and col
+     */
+    public void clear(int row, int col) {
+        int bit = bit(row, col);
+        white[pad + (bit >>> 6)] &= ~(1L << bit);
+        black[pad + (bit >>> 6)] &= ~(1L << bit);
+    }
+
+    /**
+     * Is there a piece of one colour on a cell
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param clr WHITE or BLACK
+     * @return true if the cell holds a piece of that colour
+     * @throws IllegalArgumentException for invalid row and col
+     */
+    public boolean has(int row, int col, boolean clr) {
+        int bit = bit(row, col);
+        return (stones(clr)[pad + (bit >>> 6)] & 1L << bit) != 0;
+    }
+
+    /**
+     * The number of pieces of one colour
+     * @param clr WHITE or BLACK
+     * @return the piece count
+     */
+    public int pieces(boolean clr) {
+        long[] stones = stones(clr);
+        int count = 0;
+        for (int i = pad; i < pad + wordCount; i++) {
+            count += Long.bitCount(stones[i]);
+        }
+        return count;
+    }
+
+    /**
+     * The number of islands of one colour, which is that colour's score
+     * @param clr WHITE or BLACK
+     * @return the island count
+     */
+    public int islandCount(boolean clr) {
+        long[] stones = stones(clr);
+        System.arraycopy(stones, pad, remaining, pad, wordCount);
+        int count = 0;
+        for (int word = pad; word < pad + wordCount; word++) {
+            while (remaining[word] != 0) {
+                region[word] = Long.lowestOneBit(remaining[word]);
+                int[] span = grow(stones, word, word + 1, null);
+                for (int i = span[0]; i < span[1]; i++) {
+                    remaining[i] &= ~region[i];
+                }
+                clearScratch(span);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The number of pieces on the island holding a cell
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @return the island's size, 0 for an empty cell
+     * @throws IllegalArgumentException for invalid row and col
+     */
+    public int islandSize(int row, int col) {
+        int bit = bit(row, col);
+        int word = pad + (bit >>> 6);
+        long mask = 1L << bit;
+        long[] stones = (white[word] & mask) != 0 ? white : (black[word] & mask) != 0 ? black : null;
+        if (stones == null) {
+            return 0;
+        }
+        region[word] = mask;
+        int[] span = grow(stones, word, word + 1, null);
+        int count = 0;
+        for (int i = span[0]; i < span[1]; i++) {
+            count += Long.bitCount(region[i]);
+        }
+        clearScratch(span);
+        return count;
+    }
+
+    /**
+     * Does one colour join its two edges, white top to bottom and black left to right
+     * @param clr WHITE or BLACK
+     * @return true if some island of that colour touches both of its edges
+     */
+    public boolean spans(boolean clr) {
+        long[] stones = stones(clr);
+        int last = size - 1;
+        for (int i = 0; i < size; i++) {
+            int from = clr == GameModel.WHITE ? bit(0, i) : bit(i, 0);
+            int to = clr == GameModel.WHITE ? bit(last, i) : bit(i, last);
+            region[pad + (from >>> 6)] |= 1L << from;
+            target[pad + (to >>> 6)] |= 1L << to;
+        }
+        int lo = pad;
+        int hi = pad + wordCount;
+        for (int i = lo; i < hi; i++) {
+            region[i] &= stones[i];
+        }
+        int[] span = grow(stones, lo, hi, target);
+        boolean joined = span[2] != 0;
+        clearScratch(new int[]{lo, hi});
+        Arrays.fill(target, lo, hi, 0L);
+        return joined;
+    }
+
+    /**
+     * Grow the seed in region, which lies in words [lo, hi), to everything of stones it connects
+     * to. Each round adds the six neighbours of the whole region at once and the rounds stop when
+     * nothing changes. Only the words the region can reach in a round are visited.
+     * @param stones the pieces the region may grow over
+     * @param lo the first word holding seed bits
+     * @param hi one past the last word holding seed bits
+     * @param stop if not null, stop as soon as the region meets these bits
+     * @return the words [lo, hi) holding the region, then 1 if it met stop and 0 otherwise
+     */
+    private int[] grow(long[] stones, int lo, int hi, long[] stop) {
+        long[] from = region;
+        long[] to = grown;
+        int first = pad;
+        int end = pad + wordCount;
+        long met = 0;
+        long changed = -1;
+        while (changed != 0 && met == 0) {
+            int start = Math.max(first, lo - pad);
+            int limit = Math.min(end, hi + pad);
+            changed = 0;
+            for (int i = start; i < limit; i++) {
+                long bits = from[i];
+                long next = (bits
+                        | up(from, i, 1) | down(from, i, 1)
+                        | up(from, i, stride) | down(from, i, stride)
+                        | up(from, i, stride + 1) | down(from, i, stride + 1)) & stones[i];
+                to[i] = next;
+                changed |= next ^ bits;
+            }
+            long[] swap = from;
+            from = to;
+            to = swap;
+            lo = start;
+            hi = limit;
+            while (lo < hi && from[lo] == 0) {
+                lo++;
+            }
+            while (hi > lo && from[hi - 1] == 0) {
+                hi--;
+            }
+            if (stop != null) {
+                for (int i = lo; i < hi; i++) {
+                    met |= from[i] & stop[i];
+                }
+            }
+        }
+        if (from != region) {
+            System.arraycopy(from, lo, region, lo, hi - lo);
+        }
+        return new int[]{lo, hi, met != 0 ? 1 : 0};
+    }
+
+    /**
+     * Word i of the bit string shifted towards higher cells by k bits
+     */
+    private static long up(long[] words, int i, int k) {
+        int q = k >>> 6;
+        int r = k & 63;
+        // two shifts so that r == 0 brings in nothing from the word below
+        return words[i - q] << r | (words[i - q - 1] >>> 1) >>> (63 - r);
+    }
+
+    /**
+     * Word i of the bit string shifted towards lower cells by k bits
+     */
+    private static long down(long[] words, int i, int k) {
+        int q = k >>> 6;
+        int r = k & 63;
+        return words[i + q] >>> r | (words[i + q + 1] << 1) << (63 - r);
+    }
+
+    private void clearScratch(int[] span) {
+        Arrays.fill(region, span[0], span[1], 0L);
+        Arrays.fill(grown, span[0], span[1], 0L);
+    }
+
+    private long[] stones(boolean clr) {
+        return clr == GameModel.WHITE ? white : black;
+    }
+
+    private int bit(int row, int col) {
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new IllegalArgumentException("Invalid Row or Column");
+        }
+        return row * stride + col;
+    }
+}
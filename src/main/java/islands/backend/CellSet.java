@@ -0,0 +1,177 @@
+package islands.backend;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * A set of board cells (row * size + col) packed 64 to a word.
+ * Only the backend can change the set, callers get a live read only view.
+ */
+public class CellSet {
+
+    private final LongPages words;
+    private final int wordCount;
+    private final int capacity;
+    private int count;
+
+    /**
+     * Create a set able to hold the cells 0 to capacity-1
+     * @param capacity the number of cells
+     * @param full true to start with every cell in the set
+     * @param memory where to keep the set off the heap, null for the heap
+     */
+    CellSet(int capacity, boolean full, OffHeap memory) {
+        this.capacity = capacity;
+        wordCount = (capacity + 63) >>> 6;
+        words = memory == null ? new LongPages(wordCount) : new LongPages(wordCount, memory);
+        if (full) {
+            fill();
+        }
+    }
+
+    /**
+     * A copy of other, either sharing its pages until either side changes them or flat
+     * @param other the set to copy
+     * @param share whether to fork the pages rather than copy them
+     */
+    CellSet(CellSet other, boolean share) {
+        capacity = other.capacity;
+        wordCount = other.wordCount;
+        words = share ? other.words.fork() : other.words.copy();
+        count = other.count;
+    }
+
+    /**
+     * Put every cell back into the set
+     */
+    void fill() {
+        words.fill(-1L);
+        if ((capacity & 63) != 0) {
+            words.set(wordCount - 1, -1L >>> (64 - (capacity & 63)));
+        }
+        count = capacity;
+    }
+
+    /**
+     * Replace the whole set, one word at a time
+     * @param keep which cells are in the set
+     */
+    void retain(IntPredicate keep) {
+        count = 0;
+        for (int w = 0; w < wordCount; w++) {
+            long word = 0;
+            int base = w << 6;
+            for (int bit = 0; bit < 64 && base + bit < capacity; bit++) {
+                if (keep.test(base + bit)) {
+                    word |= 1L << bit;
+                }
+            }
+            words.set(w, word);
+            count += Long.bitCount(word);
+        }
+    }
+
+    /**
+     * Add a cell to the set
+     * @param index the cell
+     */
+    void add(int index) {
+        long word = words.get(index >>> 6);
+        long mask = 1L << index;
+        if ((word & mask) == 0) {
+            words.set(index >>> 6, word | mask);
+            count++;
+        }
+    }
+
+    /**
+     * Remove a cell from the set
+     * @param index the cell
+     */
+    void remove(int index) {
+        long word = words.get(index >>> 6);
+        long mask = 1L << index;
+        if ((word & mask) != 0) {
+            words.set(index >>> 6, word & ~mask);
+            count--;
+        }
+    }
+
+    /**
+     * Is the cell in the set
+     * @param index the cell
+     * @return true if present
+     */
+    public boolean contains(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * The number of cells in the set
+     * @return the count
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * The number of cells the set can hold
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The first cell in the set at or after fromIndex, one word at a time
+     * @param fromIndex the cell to start from
+     * @return the next cell or -1 if there is none
+     */
+    public int nextCell(int fromIndex) {
+        if (fromIndex >= capacity) {
+            return -1;
+        }
+        int w = fromIndex >>> 6;
+        long word = words.get(w) & (-1L << fromIndex);
+        while (word == 0) {
+            if (++w == wordCount) {
+                return -1;
+            }
+            word = words.get(w);
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Copy the packed words into a caller owned array so it can be reused between calls
+     * @param target an array of at least wordCount() longs
+     * @return target
+     */
+    public long[] copyWords(long[] target) {
+        for (int w = 0; w < wordCount; w++) {
+            target[w] = words.get(w);
+        }
+        return target;
+    }
+
+    /**
+     * The number of longs needed by copyWords
+     * @return the word count
+     */
+    public int wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Copy the set into a caller owned BitSet so it can be reused between calls
+     * @param target the bitset to overwrite
+     * @return target
+     */
+    public BitSet copyInto(BitSet target) {
+        target.clear();
+        for (int index = nextCell(0); index >= 0; index = nextCell(index + 1)) {
+            target.set(index);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,112 @@
+package islands.backend;
+
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * The empty cells of a board kept densely packed for O(1) random picks.
+ * Removal swaps the last cell into the hole, position tracks where each cell lives.
+ */
+class FreeCells {
+
+    private final IntPages cells;
+    private final IntPages position;
+    private int count;
+
+    /**
+     * Start with every one of the capacity cells free
+     * @param capacity the number of cells on the board
+     * @param memory where to keep the list off the heap, null for the heap
+     */
+    FreeCells(int capacity, OffHeap memory) {
+        cells = memory == null ? new IntPages(capacity) : new IntPages(capacity, memory);
+        position = memory == null ? new IntPages(capacity) : new IntPages(capacity, memory);
+        reset();
+    }
+
+    /**
+     * A copy of other, either sharing its pages until either side changes them or flat
+     * @param other the free list to copy
+     * @param share whether to fork the pages rather than copy them
+     */
+    FreeCells(FreeCells other, boolean share) {
+        cells = share ? other.cells.fork() : other.cells.copy();
+        position = share ? other.position.fork() : other.position.copy();
+        count = other.count;
+    }
+
+    /**
+     * Mark every cell free again
+     */
+    void reset() {
+        cells.fillIndex();
+        position.fillIndex();
+        count = cells.length;
+    }
+
+    /**
+     * Rebuild the list with only some cells free, in one pass. The taken cells fill the slots
+     * past count in no particular order, so there is no last removed cell until the next remove.
+     * @param free which cells are free
+     */
+    void retain(IntPredicate free) {
+        int next = 0;
+        int taken = cells.length;
+        for (int index = 0; index < cells.length; index++) {
+            int slot = free.test(index) ? next++ : --taken;
+            cells.set(slot, index);
+            position.set(index, slot);
+        }
+        count = next;
+    }
+
+    /**
+     * Take a cell out of the free list by swapping the last free cell into its slot.
+     * Taken cells pile up after the free ones, most recent first, so the slots past
+     * count hold the order cells were taken in.
+     * @param index the cell, which must currently be free
+     */
+    void remove(int index) {
+        int hole = position.get(index);
+        int last = cells.get(--count);
+        cells.set(hole, last);
+        position.set(last, hole);
+        cells.set(count, index);
+        position.set(index, count);
+    }
+
+    /**
+     * The most recently removed cell that has not been restored, only valid once a cell is taken
+     * @return the cell
+     */
+    int lastRemoved() {
+        return cells.get(count);
+    }
+
+    /**
+     * Undo the most recent remove, the cell is free again at the end of the free list
+     */
+    void restoreLast() {
+        count++;
+    }
+
+    /**
+     * The number of free cells
+     * @return the count
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Pick a free cell uniformly at random
+     * @param random the source of randomness
+     * @return a free cell or -1 if the board is full
+     */
+    int sample(SplittableRandom random) {
+        if (count == 0) {
+            return -1;
+        }
+        return cells.get(random.nextInt(count));
+    }
+}
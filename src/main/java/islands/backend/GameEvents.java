@@ -0,0 +1,310 @@
+package islands.backend;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A ring buffer of what happens in one game, written by the thread playing it and read by any
+ * number of consumers at their own pace. Attach it with GameModel.setEvents.
+ *
+ * Every event is a single long, decoded with the static methods here, so publishing allocates
+ * nothing. The producer never waits for consumers: a consumer that falls more than a ring behind
+ * loses the oldest events it hasn't read, and its Cursor counts how many. Each slot carries the
+ * sequence number of its event, written last, so a consumer can tell a slot it read whole from one
+ * the producer was overwriting at the same time.
+ */
+public final class GameEvents {
+
+    /**
+     * a piece was played, see cell and color
+     */
+    public static final int MOVE = 1;
+
+    /**
+     * the last piece joined islands, see cell and joined
+     */
+    public static final int MERGED = 2;
+
+    /**
+     * a score changed, see whiteScore and blackScore
+     */
+    public static final int SCORE = 3;
+
+    /**
+     * the last piece joined its colour's edges, or a piece taken back left the game still over,
+     * see cell and color
+     */
+    public static final int GAME_OVER = 4;
+
+    /**
+     * a piece was taken back, see cell and color
+     */
+    public static final int UNDONE = 5;
+
+    /**
+     * the board was cleared
+     */
+    public static final int RESET = 6;
+
+    /**
+     * The handler a Cursor passes events to
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param sequence the event's number, counting from 0 for the first event published
+         * @param event the event, decode it with the static methods of GameEvents
+         */
+        void onEvent(long sequence, long event);
+    }
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CURSOR;
+
+    static {
+        try {
+            CURSOR = MethodHandles.lookup().findVarHandle(GameEvents.class, "cursor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final int TYPE_SHIFT = 60;
+    private static final long CELL_MASK = Integer.MAX_VALUE;
+    private static final long WHITE_BIT = 1L << 31;
+    private static final int JOINED_SHIFT = 32;
+    private static final long SCORE_MASK = (1L << 30) - 1;
+
+    /**
+     * sequence stamp and event, two longs per slot
+     */
+    private final long[] slots;
+    private final int mask;
+    private volatile long cursor = -1;
+
+    /**
+     * An empty ring
+     * @param capacity the number of events kept, a power of two
+     * @throws IllegalArgumentException if capacity isn't a positive power of two
+     */
+    public GameEvents(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new long[capacity * 2];
+        for (int i = 0; i < slots.length; i += 2) {
+            slots[i] = -1;
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * The number of events the ring keeps
+     * @return the capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * The number of events published so far
+     * @return the count
+     */
+    public long published() {
+        return cursor + 1;
+    }
+
+    /**
+     * A consumer that starts with the next event published
+     * @return the new cursor
+     */
+    public Cursor subscribe() {
+        return new Cursor(cursor + 1);
+    }
+
+    /**
+     * A consumer that starts with the oldest event still in the ring
+     * @return the new cursor
+     */
+    public Cursor subscribeFromOldest() {
+        return new Cursor(Math.max(0, cursor + 1 - capacity()));
+    }
+
+    /**
+     * Publish the events of one move, from the thread playing the game
+     */
+    void moved(int cell, boolean clr, int joins, int whiteScore, int blackScore, boolean over) {
+        long seq = cursor;
+        long piece = (clr == GameModel.WHITE ? WHITE_BIT : 0) | cell;
+        write(++seq, (long) MOVE << TYPE_SHIFT | piece);
+        if (joins > 0) {
+            write(++seq, (long) MERGED << TYPE_SHIFT | (long) (joins + 1) << JOINED_SHIFT | cell);
+        }
+        if (joins != 1) {
+            write(++seq, score(whiteScore, blackScore));
+        }
+        if (over) {
+            write(++seq, (long) GAME_OVER << TYPE_SHIFT | piece);
+        }
+        CURSOR.setRelease(this, seq);
+    }
+
+    /**
+     * Publish the events of taking a move back, from the thread playing the game
+     */
+    void undone(int cell, boolean clr, int joins, int whiteScore, int blackScore, boolean over) {
+        long seq = cursor;
+        long piece = (clr == GameModel.WHITE ? WHITE_BIT : 0) | cell;
+        write(++seq, (long) UNDONE << TYPE_SHIFT | piece);
+        if (joins != 1) {
+            write(++seq, score(whiteScore, blackScore));
+        }
+        if (over) {
+            write(++seq, (long) GAME_OVER << TYPE_SHIFT | piece);
+        }
+        CURSOR.setRelease(this, seq);
+    }
+
+    /**
+     * Publish a reset, from the thread playing the game
+     */
+    void reset() {
+        long seq = cursor + 1;
+        write(seq, (long) RESET << TYPE_SHIFT);
+        CURSOR.setRelease(this, seq);
+    }
+
+    private static long score(int whiteScore, int blackScore) {
+        return (long) SCORE << TYPE_SHIFT | (long) whiteScore << 30 | blackScore;
+    }
+
+    /**
+     * Overwrite a slot: mark it torn, write the event, then stamp it with its sequence
+     */
+    private void write(long seq, long event) {
+        int slot = (int) (seq & mask) << 1;
+        SLOTS.setOpaque(slots, slot, -1L);
+        VarHandle.storeStoreFence();
+        slots[slot + 1] = event;
+        SLOTS.setRelease(slots, slot, seq);
+    }
+
+    /**
+     * The kind of an event
+     * @param event the event
+     * @return MOVE, MERGED, SCORE, GAME_OVER, UNDONE or RESET
+     */
+    public static int type(long event) {
+        return (int) (event >>> TYPE_SHIFT);
+    }
+
+    /**
+     * The cell of a MOVE, MERGED, GAME_OVER or UNDONE event
+     * @param event the event
+     * @return the cell as row * size + col
+     */
+    public static int cell(long event) {
+        return (int) (event & CELL_MASK);
+    }
+
+    /**
+     * The colour of the piece of a MOVE, GAME_OVER or UNDONE event
+     * @param event the event
+     * @return WHITE or BLACK
+     */
+    public static boolean color(long event) {
+        return (event & WHITE_BIT) != 0 ? GameModel.WHITE : GameModel.BLACK;
+    }
+
+    /**
+     * The number of islands a MERGED event's piece joined into one
+     * @param event the event
+     * @return at least 2
+     */
+    public static int joined(long event) {
+        return (int) (event >>> JOINED_SHIFT & 7);
+    }
+
+    /**
+     * White's score after a SCORE event
+     * @param event the event
+     * @return white's island count
+     */
+    public static int whiteScore(long event) {
+        return (int) (event >>> 30 & SCORE_MASK);
+    }
+
+    /**
+     * Black's score after a SCORE event
+     * @param event the event
+     * @return black's island count
+     */
+    public static int blackScore(long event) {
+        return (int) (event & SCORE_MASK);
+    }
+
+    /**
+     * One consumer's place in the ring. A cursor belongs to one thread, but any number of
+     * cursors can read the same ring.
+     */
+    public final class Cursor {
+
+        private long next;
+        private long lost;
+
+        private Cursor(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Pass the events published since the last poll to a handler, oldest first
+         * @param handler the consumer
+         * @param max the most events to pass
+         * @return the number of events passed
+         */
+        public int poll(Handler handler, int max) {
+            long available = (long) CURSOR.getAcquire(GameEvents.this);
+            int count = 0;
+            while (count < max && next <= available) {
+                if (available - next > mask) {
+                    skipTo(available - mask);
+                    continue;
+                }
+                int slot = (int) (next & mask) << 1;
+                long stamp = (long) SLOTS.getAcquire(slots, slot);
+                long event = slots[slot + 1];
+                VarHandle.loadLoadFence();
+                if (stamp != next || (long) SLOTS.getOpaque(slots, slot) != next) {
+                    // overwritten while we read it, the ring has moved on
+                    available = (long) CURSOR.getAcquire(GameEvents.this);
+                    skipTo(Math.max(next + 1, available - mask));
+                    continue;
+                }
+                handler.onEvent(next++, event);
+                count++;
+            }
+            return count;
+        }
+
+        private void skipTo(long sequence) {
+            lost += sequence - next;
+            next = sequence;
+        }
+
+        /**
+         * The number of events published that this cursor hasn't passed on yet
+         * @return the backlog, which can be more than the ring holds
+         */
+        public long backlog() {
+            return published() - next;
+        }
+
+        /**
+         * The events skipped because the producer overwrote them before they were read
+         * @return the count
+         */
+        public long lost() {
+            return lost;
+        }
+    }
+}
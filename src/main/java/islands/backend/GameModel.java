@@ -1,5 +1,17 @@
 package islands.backend;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 /**
  * Class to model the play of the game
  *
@@ -8,28 +20,286 @@ public class GameModel {
     public int size;
     public int whiteScores;
     public int blackScores;
-    public int[] parent;
-    public int[] rank;
-    Integer[][] playboard;
+    private final IntPages parent;
+    private final LongPages islandData;
+    private final LongPages boxes;
+    private final IntPages roots;
+    private final IntPages rootSlot;
+    private final int[] rootCount = new int[2];
+    private final BytePages cells;
+    private final CellSet emptyCells;
+    private final FreeCells freeCells;
+    private final IntStack trail;
+    private int moves;
+    private boolean gameOver;
+    private long hash;
+    private long finds;
+    private long findSteps;
+    private long unions;
+    private final int[] largestCell = {-1, -1};
+    private final int[] largestSize = new int[2];
+    private long mergedData;
+    private long mergedBox;
+    private int grown;
+    private GameEvents events;
+
+    /**
+     * the biggest board whose cells can all be numbered row * size + col in an int
+     */
+    public static final int MAX_SIZE = 46340;
+
+    /**
+     * the fewest rows load gives each parallel strip
+     */
+    private static final int MIN_STRIP_ROWS = 32;
 
     public static final boolean WHITE = true;
     public static final boolean BLACK = false;
 
+    /**
+     * what cell returns for an empty cell and for a white or black piece
+     */
+    public static final byte EMPTY = 0;
+    public static final byte WHITE_CELL = 1;
+    public static final byte BLACK_CELL = -1;
+
+    /**
+     * row and column offsets of the six hex neighbours, index i of one pairs with index i of the other.
+     * They go round the cell, so each neighbour also touches the one before it, the first touching the last.
+     */
+    static final int[] ROW_OFFSETS = {-1, -1, 0, 1, 1, 0};
+    static final int[] COL_OFFSETS = {-1, 0, 1, 1, 0, -1};
+
+    /**
+     * the neighbours a row by row build has placed before a cell: up left, up and left
+     */
+    private static final int[] PLACED_BEFORE = {0, 1, 5};
+
+    /**
+     * flags of a move's trail header, above the four bits of its join count
+     */
+    private static final int JOIN_MASK = 15;
+
+    /**
+     * where the header keeps the sides of the box that grew to take in the piece, see grownSides
+     */
+    private static final int GROWN_SHIFT = 6;
+
+    /**
+     * what to add to a box to move one side back in by one, from maxCol up, see shrink
+     */
+    private static final long[] SHRINK = {-1L, 1L << 16, -(1L << 32), 1L << 48};
+
+    /**
+     * An island's data is its size in the low half of a long and its liberties in the high half,
+     * so the data of two islands adds up field by field. Sizes never carry into the liberties.
+     */
+    private static final long ONE_PIECE = 1;
+    private static final long LIBERTY = 1L << 32;
+    private static final int WAS_OVER = 1 << 4;
+    private static final int NEW_LARGEST = 1 << 5;
+
     /**
      * Construct a game with given sizexsize and an empty game board
      * @param sz the square size of the board
      */
     public GameModel(int sz) {
+        this(sz, null);
+    }
+
+    /**
+     * A game with a whole board of pieces already on it, built in one pass instead of playing
+     * the pieces one at a time. Horizontal strips of rows are joined into islands in parallel,
+     * then the islands that cross the strip boundaries are joined, and finally every piece is
+     * pointed straight at its island's root, so later finds take one step.
+     * The game starts with no moves to undo, like a snapshot.
+     * @param board the cells row by row, size * size of them: 0 for empty, 1 for white and -1 for black
+     * @return the new game
+     * @throws IllegalArgumentException if the board isn't square or holds another value
+     */
+    public static GameModel load(byte[] board) {
+        int sz = (int) Math.sqrt(board.length);
+        if (sz == 0 || sz * sz != board.length) {
+            throw new IllegalArgumentException("Not a square board: " + board.length + " cells");
+        }
+        GameModel model = new GameModel(sz);
+        model.build(board);
+        return model;
+    }
+
+    /**
+     * A game with the pieces of a bit board on it, see load
+     * @param board the pieces
+     * @return the new game
+     */
+    public static GameModel fromBoard(BitBoard board) {
+        int sz = board.getSize();
+        byte[] cells = new byte[sz * sz];
+        for (int row = 0; row < sz; row++) {
+            for (int col = 0; col < sz; col++) {
+                if (board.has(row, col, WHITE)) {
+                    cells[row * sz + col] = WHITE_CELL;
+                } else if (board.has(row, col, BLACK)) {
+                    cells[row * sz + col] = BLACK_CELL;
+                }
+            }
+        }
+        return load(cells);
+    }
+
+    /**
+     * Construct a game with its board and union-find on the heap or off it
+     * @param sz the square size of the board
+     * @param memory where to allocate the off-heap arrays, null for the heap
+     * @throws IllegalArgumentException if the board has more than Integer.MAX_VALUE cells
+     */
+    private GameModel(int sz, OffHeap memory) {
+        if (sz > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size " + sz + " is over " + MAX_SIZE);
+        }
         this.size = sz;
-        playboard = new Integer[sz][sz];
-        parent = new int[sz*sz];
-        rank = new int[sz*sz];
-        for(int i = 0 ; i< sz*sz; i++){
-            parent[i] = i;
-            rank[i] = 1;
+        if (memory == null) {
+            cells = new BytePages(sz*sz);
+            parent = new IntPages(sz*sz);
+            islandData = new LongPages(sz*sz);
+            boxes = new LongPages(sz*sz);
+            roots = new IntPages(sz*sz);
+            rootSlot = new IntPages(sz*sz);
+        } else {
+            cells = new BytePages(sz*sz, memory);
+            parent = new IntPages(sz*sz, memory);
+            islandData = new LongPages(sz*sz, memory);
+            boxes = new LongPages(sz*sz, memory);
+            roots = new IntPages(sz*sz, memory);
+            rootSlot = new IntPages(sz*sz, memory);
+        }
+        emptyCells = new CellSet(sz*sz, true, memory);
+        freeCells = new FreeCells(sz*sz, memory);
+        trail = new IntStack(memory != null);
+        reset();
+    }
+
+    /**
+     * A game whose board and union-find live off the Java heap in direct buffers, for boards
+     * bigger than the heap or many games that shouldn't add to the collector's work. It plays
+     * exactly like a heap game, and its snapshots and copies are off the heap too, but they are
+     * full copies rather than shared pages. Only the top block of the undo trail stays on the heap.
+     * Direct memory is limited by -XX:MaxDirectMemorySize and is freed when the game is collected.
+     * @param sz the square size of the board
+     * @return the new game
+     * @throws IllegalArgumentException if the board has more than Integer.MAX_VALUE cells
+     */
+    public static GameModel offHeap(int sz) {
+        return new GameModel(sz, OffHeap.direct());
+    }
+
+    /**
+     * A game like offHeap(sz) whose board and union-find are mapped from a file, so the
+     * operating system pages them in and out and the board can outgrow memory as well as the heap.
+     * Any existing contents of the file are replaced. The file is working memory, not a saved game:
+     * use islands.record to keep games. Snapshots and copies go to direct memory.
+     * @param sz the square size of the board
+     * @param file the backing file, created if it doesn't exist
+     * @return the new game
+     * @throws IOException if the file can't be opened or grown
+     * @throws IllegalArgumentException if the board has more than Integer.MAX_VALUE cells
+     */
+    public static GameModel mapped(int sz, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return new GameModel(sz, OffHeap.mapped(channel));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
+
+    /**
+     * A copy of other, either a fork that shares every unchanged page of the board
+     * and union-find or a flat copy of them
+     * @param other the position to copy
+     * @param share whether to fork the pages rather than copy them
+     */
+    private GameModel(GameModel other, boolean share) {
+        size = other.size;
+        whiteScores = other.whiteScores;
+        blackScores = other.blackScores;
+        cells = share ? other.cells.fork() : other.cells.copy();
+        emptyCells = new CellSet(other.emptyCells, share);
+        freeCells = new FreeCells(other.freeCells, share);
+        parent = share ? other.parent.fork() : other.parent.copy();
+        islandData = share ? other.islandData.fork() : other.islandData.copy();
+        boxes = share ? other.boxes.fork() : other.boxes.copy();
+        roots = share ? other.roots.fork() : other.roots.copy();
+        rootSlot = share ? other.rootSlot.fork() : other.rootSlot.copy();
+        System.arraycopy(other.rootCount, 0, rootCount, 0, 2);
+        System.arraycopy(other.largestCell, 0, largestCell, 0, 2);
+        System.arraycopy(other.largestSize, 0, largestSize, 0, 2);
+        trail = new IntStack(other.trail.isOffHeap());
+        gameOver = other.gameOver;
+        hash = other.hash;
+    }
 
+    /**
+     * A copy of this position that shares the board and union-find arrays page by page,
+     * each side copies a page only when it first changes it. The snapshot starts with no
+     * moves to undo. Call this on the thread that owns the model, the snapshot can then be
+     * handed to another thread and both can play on independently.
+     * @return the new position
+     */
+    public GameModel snapshot() {
+        return new GameModel(this, true);
+    }
 
+    /**
+     * A full copy of this position that shares nothing with it. Unlike snapshot() this costs
+     * O(size*size), but neither side ever pays for page lookups, which suits a copy that
+     * plays a great many moves, like a search thread's board. The copy starts with no moves to undo.
+     * Call this on the thread that owns the model.
+     * @return the new position
+     */
+    public GameModel copy() {
+        return new GameModel(this, false);
+    }
+
+    /**
+     * Clear the board back to an empty game of the same size, reusing the arrays.
+     * The island data of a cell is written when it is played, so it needs no clearing.
+     */
+    public void reset() {
+        cells.fill(EMPTY);
+        emptyCells.fill();
+        freeCells.reset();
+        parent.fillIndex();
+        whiteScores = 0;
+        blackScores = 0;
+        trail.clear();
+        moves = 0;
+        gameOver = false;
+        hash = 0;
+        largestCell[0] = largestCell[1] = -1;
+        largestSize[0] = largestSize[1] = 0;
+        rootCount[0] = rootCount[1] = 0;
+        if (events != null) {
+            events.reset();
+        }
+    }
+
+    /**
+     * Publish every move, undo and reset of this game to a ring of events. Only the thread
+     * playing the game may publish, consumers read the ring from any thread. Snapshots and
+     * copies don't publish to it.
+     * @param events the ring, or null to stop publishing
+     */
+    public void setEvents(GameEvents events) {
+        this.events = events;
+    }
+
+    /**
+     * The ring this game publishes to
+     * @return the ring, or null if there is none
+     */
+    public GameEvents getEvents() {
+        return events;
     }
 
 
@@ -41,79 +311,321 @@ public class GameModel {
      * @throws IllegalArgumentException for invalid row and col
      */
     public boolean canPlay(int row, int col) {
-        if(row < 0|| row >= playboard.length|| col < 0|| col >= playboard.length){
+        if(row < 0|| row >= size|| col < 0|| col >= size){
             throw new IllegalArgumentException("Invalid Row or Column");
         }
-        if (playboard[row][col] == null){
-            playboard[row][col] = 1;
-            return true;
+        return cells.get(row * size + col) == EMPTY;
+    }
+
+    /**
+     * The piece on a cell, for reading a whole board without a call per colour
+     * @param index the cell, row * size + col
+     * @return EMPTY, WHITE_CELL or BLACK_CELL
+     * @throws IllegalArgumentException for an index off the board
+     */
+    public byte cell(int index) {
+        if (index < 0 || index >= size * size) {
+            throw new IllegalArgumentException("Invalid cell " + index);
         }
-        else return false;
+        return cells.get(index);
+    }
+
+    /**
+     * The empty cells (row * size + col) of the board, kept up to date by makePlay
+     * @return a live read only view of the legal moves
+     */
+    public CellSet emptyCells() {
+        return emptyCells;
+    }
+
+    /**
+     * Pick an empty cell uniformly at random in O(1)
+     * @param random the source of randomness, seed it for repeatable games
+     * @return the cell as row * size + col or -1 if the board is full
+     */
+    public int randomEmptyCell(SplittableRandom random) {
+        return freeCells.sample(random);
     }
 
 
     /**
      * play a piece and report if the game is over (true) false, otherwise
+     * White wins by joining the top and bottom edges, black by joining the left and right edges.
      * @param row the row where a piece is played
      * @param col the col where a piece is played
-     * @param clr -1 for WHITE and 1 for BLACK
+     * @param clr true for WHITE and false for BLACK
      * @return true if the game is over and false otherwise
-     * @throws IllegalArgumentException for invalid row and col
+     * @throws IllegalArgumentException for invalid row and col or an occupied position
      */
-
-
     public boolean makePlay(int row, int col, boolean clr) {
-        int clrValue = clr == WHITE ? 1 : -1;
-        if (row < 0 || row >= playboard.length || col < 0 || col >= playboard.length) {
-            throw new IllegalArgumentException("Invalid Row or Column");
+        if (!canPlay(row, col)) {
+            throw new IllegalArgumentException("Position already played");
         }
+        byte clrValue = clr == WHITE ? WHITE_CELL : BLACK_CELL;
+        int index = row * size + col;
+        cells.set(index, clrValue);
+        hash ^= Zobrist.key(index, clr);
+        emptyCells.remove(index);
+        freeCells.remove(index);
 
-        playboard[row][col] = clrValue;
-
-        int[][] directions = {{-1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, 0}, {1, 1}};
-        for (int[] direction : directions) {
-            int newRow = row + direction[0];
-            int newCol = col + direction[1];
-            if (newRow >= 0 && newRow < playboard.length && newCol >= 0 && newCol < playboard.length && playboard[newRow][newCol] != null) {
-                int root1 = find(newRow * playboard.length + newCol);
-                int root2 = find(row * playboard.length + col);
-                if (playboard[newRow][newCol] == 1 && clrValue == -1) {
-                    blackScores++;}
-                if (root1 != root2) {
-                    parent[root1] = root2;
-                    rank[root2] += rank[root1];
-                    if (clr == WHITE) {
-                        whiteScores--;
-                    } else {
-                        blackScores--;
-                    }
-                }
+        int found = neighbours(row, col, clrValue);
+        otherLiberties(row, col, found >>> 8 & 63, -LIBERTY);
+
+        // one find for each run of friends round the cell, the rest of a run are on the same island
+        long data = pieceData(found);
+        int root = index;
+        long box = box(row, row, col, col);
+        int side = clr == WHITE ? 0 : 1;
+        int joins = 0;
+        for (int starts = runStarts(found & 63); starts != 0; starts &= starts - 1) {
+            int d = Integer.numberOfTrailingZeros(starts);
+            int friendRoot = find((row + ROW_OFFSETS[d]) * size + col + COL_OFFSETS[d]);
+            if (friendRoot != root) {
+                root = union(root, data, box, friendRoot, index, side);
+                data = mergedData;
+                box = mergedBox;
+                joins++;
             }
         }
+        int islands = 1 - joins;
+        int header = joins | (gameOver ? WAS_OVER : 0) | (joins > 0 ? grown << GROWN_SHIFT : 0);
+        if (joins == 0) {
+            // a lone piece, the only root that stores its own data
+            islandData.set(index, data);
+            addRoot(index, side);
+        }
 
         if (clr == WHITE) {
-            whiteScores++;
+            whiteScores += islands;
+            gameOver |= minRow(box) == 0 && maxRow(box) == size - 1;
         } else {
-            blackScores++;
+            blackScores += islands;
+            gameOver |= minCol(box) == 0 && maxCol(box) == size - 1;
+        }
+        int islandSize = (int) data;
+        if (islandSize > largestSize[side]) {
+            trail.push(largestCell[side]);
+            trail.push(largestSize[side]);
+            largestCell[side] = index;
+            largestSize[side] = islandSize;
+            header |= NEW_LARGEST;
         }
-        int root = find(row * playboard.length + col);
-        boolean gameOver = false;
+        trail.push(header);
+        moves++;
+        if (events != null) {
+            events.moved(index, clr, joins, whiteScores, blackScores, gameOver && (header & WAS_OVER) == 0);
+        }
+        return gameOver;
+    }
 
-        if (clrValue == 1) {
-            gameOver = rank[root] == playboard.length;
-            if (gameOver) {
-                whiteScores = 1;
+    /**
+     * The six neighbours of a cell, in the order of ROW_OFFSETS: a bit for each piece of the
+     * given colour in bits 0 to 5, a bit for each piece of the other colour in bits 8 to 13
+     * and the number of empty cells from bit 16
+     */
+    private int neighbours(int row, int col, byte clrValue) {
+        int found = 0;
+        for (int d = 0; d < 6; d++) {
+            int newRow = row + ROW_OFFSETS[d];
+            int newCol = col + COL_OFFSETS[d];
+            if (newRow < 0 || newRow >= size || newCol < 0 || newCol >= size) {
+                continue;
             }
-        } else {
-            gameOver = rank[root] == playboard.length;
-            if (gameOver) {
-                blackScores = 1;
+            byte value = cells.get(newRow * size + newCol);
+            if (value == EMPTY) {
+                found += 1 << 16;
+            } else if (value == clrValue) {
+                found |= 1 << d;
+            } else {
+                found |= 0x100 << d;
             }
         }
+        return found;
+    }
+
+    /**
+     * The data of a piece on its own: its liberties, less one for each friendly piece that had its cell as a liberty
+     * @param found the piece's neighbours, see neighbours
+     */
+    private static long pieceData(int found) {
+        return ONE_PIECE + ((found >>> 16) - Integer.bitCount(found & 63)) * LIBERTY;
+    }
+
+    /**
+     * The first neighbour of each run of neighbours going round a cell, from six bits of neighbours.
+     * Pieces in a run touch each other, so they are all on one island. A full ring is one run.
+     */
+    private static int runStarts(int ring) {
+        return ring == 63 ? 1 : ring & ~(ring << 1 | ring >>> 5);
+    }
+
+    /**
+     * Change the liberties of the other colour's islands round a cell, by one for each of
+     * their pieces next to it, with one find for each run of those pieces
+     * @param others six bits of the other colour's neighbours, see neighbours
+     * @param change LIBERTY or -LIBERTY
+     */
+    private void otherLiberties(int row, int col, int others, long change) {
+        for (int starts = runStarts(others); starts != 0; starts &= starts - 1) {
+            int d = Integer.numberOfTrailingZeros(starts);
+            int run = Integer.numberOfTrailingZeros(~((others >>> d | others << (6 - d)) & 63));
+            int root = find((row + ROW_OFFSETS[d]) * size + col + COL_OFFSETS[d]);
+            islandData.set(root, islandData.get(root) + run * change);
+        }
+    }
+
+    /**
+     * Add an island to its colour's list of roots
+     */
+    private void addRoot(int root, int side) {
+        int slot = side == 0 ? rootCount[0]++ : size * size - ++rootCount[1];
+        roots.set(slot, root);
+        rootSlot.set(root, slot);
+    }
+
+    /**
+     * Take an island off its colour's list of roots, moving the last root into its slot
+     */
+    private void removeRoot(int root, int side) {
+        int slot = rootSlot.get(root);
+        int last = side == 0 ? --rootCount[0] : size * size - rootCount[1]--;
+        int moved = roots.get(last);
+        roots.set(slot, moved);
+        rootSlot.set(moved, slot);
+    }
+
+    /**
+     * Take back the last move, restoring the board, islands and scores exactly
+     * @throws IllegalStateException if no move has been played
+     */
+    public void undo() {
+        if (moves == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        int index = freeCells.lastRemoved();
+        int header = trail.pop();
+        byte clrValue = cells.get(index);
+        int side = clrValue == WHITE_CELL ? 0 : 1;
+        if ((header & NEW_LARGEST) != 0) {
+            largestSize[side] = trail.pop();
+            largestCell[side] = trail.pop();
+        }
+        int row = index / size;
+        int col = index % size;
+        int found = neighbours(row, col, clrValue);
+        int joins = header & JOIN_MASK;
+        for (int i = joins - 1; i >= 0; i--) {
+            int child = trail.pop();
+            int parentRoot = parent.get(child);
+            // a piece that went straight under another island never stored its data
+            long childData = i == 0 && child == index ? pieceData(found) : islandData.get(child);
+            islandData.set(parentRoot, islandData.get(parentRoot) - childData);
+            if (i > 0) {
+                boxes.set(parentRoot, (long) trail.pop() << 32 | trail.pop() & 0xFFFFFFFFL);
+            } else if (parentRoot != index) {
+                boxes.set(parentRoot, shrink(boxes.get(parentRoot), header >>> GROWN_SHIFT));
+            }
+            parent.set(child, child);
+            if (i == 0 && parentRoot == index) {
+                // the piece took the child's place in the list of roots
+                int slot = rootSlot.get(index);
+                roots.set(slot, child);
+                rootSlot.set(child, slot);
+            } else if (i > 0 || child != index) {
+                addRoot(child, side);
+            }
+        }
+        if (joins == 0) {
+            removeRoot(index, side);
+        }
+        otherLiberties(row, col, found >>> 8 & 63, LIBERTY);
+        if (clrValue == WHITE_CELL) {
+            whiteScores -= 1 - joins;
+            hash ^= Zobrist.key(index, WHITE);
+        } else {
+            blackScores -= 1 - joins;
+            hash ^= Zobrist.key(index, BLACK);
+        }
+        cells.set(index, EMPTY);
+        emptyCells.add(index);
+        freeCells.restoreLast();
+        moves--;
+        gameOver = (header & WAS_OVER) != 0;
+        if (events != null) {
+            events.undone(index, clrValue == WHITE_CELL, joins, whiteScores, blackScores, gameOver);
+        }
+    }
+
+    /**
+     * Take back the last n moves
+     * @param n the number of moves to take back
+     * @throws IllegalArgumentException if fewer than n moves have been played
+     */
+    public void undo(int n) {
+        if (n < 0 || n > moves) {
+            throw new IllegalArgumentException("Can't undo " + n + " of " + moves + " moves");
+        }
+        for (int i = 0; i < n; i++) {
+            undo();
+        }
+    }
+
+    /**
+     * The number of moves played that can be taken back
+     * @return the move count
+     */
+    public int moveCount() {
+        return moves;
+    }
+
+    /**
+     * The most recently played cell
+     * @return the cell as row * size + col or -1 if no move has been played
+     */
+    public int lastMove() {
+        return moves == 0 ? -1 : freeCells.lastRemoved();
+    }
+
+    /**
+     * Has either player joined their two edges of the board
+     * @return true if white connects top to bottom or black connects left to right
+     */
+    public boolean isGameOver() {
         return gameOver;
     }
 
+    /**
+     * The Zobrist hash of the pieces on the board, the same however the position was reached
+     * @return the 64 bit position key
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * How many root lookups this model has done, counting from its creation.
+     * Never reset, take the difference of two readings for a span of moves.
+     * @return the number of find calls
+     */
+    public long findCount() {
+        return finds;
+    }
+
+    /**
+     * How many parent links the root lookups have followed, findSteps()/findCount() is the mean path length
+     * @return the total path length of all find calls
+     */
+    public long findSteps() {
+        return findSteps;
+    }
 
+    /**
+     * How many times two islands have been joined
+     * @return the number of unions
+     */
+    public long unionCount() {
+        return unions;
+    }
 
     /**
      * Return the score for white
@@ -132,28 +644,370 @@ public class GameModel {
         return blackScores;
     }
 
-private int find(int index){
-        while(index != parent[index]){
-            parent[index] = parent[parent[index]];
-            index = parent[index];
+    /**
+     * The island holding a piece
+     * @param row the row of the piece
+     * @param col the col of the piece
+     * @return the island, or empty if the cell is empty
+     * @throws IllegalArgumentException for invalid row and col
+     */
+    public Optional<Island> islandAt(int row, int col) {
+        if (canPlay(row, col)) {
+            return Optional.empty();
+        }
+        return Optional.of(island(find(row * size + col)));
+    }
+
+    /**
+     * The biggest island of one colour, the first to reach that size if there are several
+     * @param clr WHITE or BLACK
+     * @return the island, or empty if the colour has no pieces
+     */
+    public Optional<Island> largestIsland(boolean clr) {
+        int cell = largestCell[clr == WHITE ? 0 : 1];
+        return cell < 0 ? Optional.empty() : Optional.of(island(find(cell)));
+    }
+
+    /**
+     * Every island of one colour, from the list of roots kept up to date by every move and undo,
+     * so it costs O(1) per island. The board must not change while the islands are iterated.
+     * @param clr WHITE or BLACK
+     * @return the islands in no particular order
+     */
+    public Iterable<Island> islands(boolean clr) {
+        int from = clr == WHITE ? 0 : size * size - rootCount[1];
+        int to = clr == WHITE ? rootCount[0] : size * size;
+        return () -> new Iterator<>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public Island next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return island(roots.get(next++));
+            }
+        };
+    }
+
+    /**
+     * The data kept at a union-find root, as an Island
+     */
+    private Island island(int root) {
+        long data = islandData.get(root);
+        long box = boxOf(root, data);
+        return new Island(root, cells.get(root) == WHITE_CELL, (int) data, (int) (data >> 32),
+                minRow(box), maxRow(box), minCol(box), maxCol(box), size);
+    }
+
+    /**
+     * The bounding box of the island rooted at root. A lone piece's box is its own cell,
+     * so it is only stored once the island grows.
+     */
+    private long boxOf(int root, long data) {
+        if ((int) data == 1) {
+            int row = root / size;
+            int col = root % size;
+            return box(row, row, col, col);
+        }
+        return boxes.get(root);
+    }
+
+    /**
+     * The sides of a box that moved when it grew into another, a bit for each from maxCol up
+     */
+    private static int grownSides(long box, long merged) {
+        int sides = 0;
+        for (int side = 0; side < 4; side++) {
+            if ((short) (box >>> 16 * side) != (short) (merged >>> 16 * side)) {
+                sides |= 1 << side;
+            }
+        }
+        return sides;
+    }
+
+    /**
+     * The box an island had before a piece joined it, from the box after and its grown sides.
+     * The piece is next to a piece of the island, so each side that grew only moved by one.
+     */
+    private static long shrink(long box, int sides) {
+        for (int side = 0; side < 4; side++) {
+            if ((sides & 1 << side) != 0) {
+                box += SHRINK[side];
+            }
+        }
+        return box;
+    }
+
+    /**
+     * Pack a bounding box into a long, 16 bits a side. Cell indices are ints, so no side
+     * of a board reaches 2^16.
+     */
+    private static long box(int minRow, int maxRow, int minCol, int maxCol) {
+        return (long) minRow << 48 | (long) maxRow << 32 | (long) minCol << 16 | maxCol;
+    }
+
+    /**
+     * The smallest box holding two boxes
+     */
+    private static long span(long box, long other) {
+        return box(Math.min(minRow(box), minRow(other)), Math.max(maxRow(box), maxRow(other)),
+                Math.min(minCol(box), minCol(other)), Math.max(maxCol(box), maxCol(other)));
+    }
+
+    private static int minRow(long box) {
+        return (int) (box >>> 48);
+    }
+
+    private static int maxRow(long box) {
+        return (int) (box >>> 32) & 0xFFFF;
+    }
+
+    private static int minCol(long box) {
+        return (int) (box >>> 16) & 0xFFFF;
+    }
+
+    private static int maxCol(long box) {
+        return (int) box & 0xFFFF;
+    }
+
+    /**
+     * Find the root of the component holding index. There is no path compression so
+     * undo can unlink a union, union by size keeps the paths O(log n) long.
+     * @param index a cell
+     * @return the root cell
+     */
+    int find(int index){
+        int steps = 0;
+        int next = parent.get(index);
+        while(index != next){
+            index = next;
+            next = parent.get(index);
+            steps++;
         }
+        finds++;
+        findSteps += steps;
         return index;
     }
 
-    private void union(int p, int q){
-        int rootP = find(p);
-        int rootQ = find(q);
-        if (rootP == rootQ){
-            return;
+    /**
+     * Fill an empty game with a whole board, see load
+     */
+    private void build(byte[] board) {
+        int strips = Math.max(1, Math.min(size / MIN_STRIP_ROWS, ForkJoinPool.getCommonPoolParallelism() * 4));
+        int rows = (size + strips - 1) / strips;
+        long[] hashes = new long[strips];
+        IntStream.range(0, strips).parallel().forEach(strip ->
+                hashes[strip] = buildStrip(board, Math.min(size, strip * rows), Math.min(size, (strip + 1) * rows)));
+
+        // islands crossing from the last row of one strip into the first row of the next
+        for (int row = rows; row < size; row += rows) {
+            for (int col = 0; col < size; col++) {
+                int index = row * size + col;
+                if (board[index] == EMPTY) {
+                    continue;
+                }
+                for (int d = 0; d < 2; d++) {
+                    int newCol = col + COL_OFFSETS[d];
+                    int neighbour = (row - 1) * size + newCol;
+                    if (newCol >= 0 && board[neighbour] == board[index]) {
+                        join(findHalving(index), findHalving(neighbour));
+                    }
+                }
+            }
+        }
+
+        int[][] counts = new int[strips][];
+        IntStream.range(0, strips).parallel().forEach(strip ->
+                counts[strip] = flattenStrip(Math.min(size, strip * rows), Math.min(size, (strip + 1) * rows)));
+        for (int strip = 0; strip < strips; strip++) {
+            hash ^= hashes[strip];
+            whiteScores += counts[strip][0];
+            blackScores += counts[strip][1];
         }
-        if (rank[rootP] < rank[rootQ]){
-            parent[rootP] = rootQ;
-            rank[rootQ] += rank[rootP];
+
+        emptyCells.retain(index -> board[index] == EMPTY);
+        freeCells.retain(index -> board[index] == EMPTY);
+        for (int index = 0; index < board.length; index++) {
+            if (board[index] == EMPTY || parent.get(index) != index) {
+                continue;
+            }
+            long data = islandData.get(index);
+            int side = board[index] == WHITE_CELL ? 0 : 1;
+            addRoot(index, side);
+            if ((int) data > largestSize[side]) {
+                largestSize[side] = (int) data;
+                largestCell[side] = index;
+            }
+            long box = boxOf(index, data);
+            gameOver |= side == 0 ? minRow(box) == 0 && maxRow(box) == size - 1 : minCol(box) == 0 && maxCol(box) == size - 1;
         }
-        else{
-            parent[rootQ] = rootP;
-            rank[rootP] += rank[rootQ];
+    }
+
+    /**
+     * Place the pieces of rows [from, to) and join them into islands within those rows. Strips
+     * share no roots, so they can be built at the same time.
+     * @return the Zobrist hash of the strip's pieces
+     * @throws IllegalArgumentException for a value that isn't a cell
+     */
+    private long buildStrip(byte[] board, int from, int to) {
+        long stripHash = 0;
+        for (int row = from; row < to; row++) {
+            for (int col = 0; col < size; col++) {
+                int index = row * size + col;
+                byte value = board[index];
+                if (value == EMPTY) {
+                    continue;
+                }
+                if (value != WHITE_CELL && value != BLACK_CELL) {
+                    throw new IllegalArgumentException("Invalid cell " + value + " at " + row + "," + col);
+                }
+                cells.set(index, value);
+                stripHash ^= Zobrist.key(index, value == WHITE_CELL);
+                long data = ONE_PIECE;
+                for (int d = 0; d < ROW_OFFSETS.length; d++) {
+                    int newRow = row + ROW_OFFSETS[d];
+                    int newCol = col + COL_OFFSETS[d];
+                    if (newRow >= 0 && newRow < size && newCol >= 0 && newCol < size && board[newRow * size + newCol] == EMPTY) {
+                        data += LIBERTY;
+                    }
+                }
+                islandData.set(index, data);
+                for (int d : PLACED_BEFORE) {
+                    int newRow = row + ROW_OFFSETS[d];
+                    int newCol = col + COL_OFFSETS[d];
+                    int neighbour = newRow * size + newCol;
+                    if (newRow >= from && newCol >= 0 && board[neighbour] == value) {
+                        join(findHalving(index), findHalving(neighbour));
+                    }
+                }
+            }
+        }
+        return stripHash;
+    }
+
+    /**
+     * Point every piece of rows [from, to) straight at its root. Other strips may be doing the
+     * same, but a parent only ever changes to another ancestor, so any value read leads to the root.
+     * @return the number of white and black roots in the strip
+     */
+    private int[] flattenStrip(int from, int to) {
+        int[] roots = new int[2];
+        for (int index = from * size; index < to * size; index++) {
+            byte value = cells.get(index);
+            if (value == EMPTY) {
+                continue;
+            }
+            int root = index;
+            for (int next = parent.get(root); next != root; next = parent.get(root)) {
+                root = next;
+            }
+            parent.set(index, root);
+            if (root == index) {
+                roots[value == WHITE_CELL ? 0 : 1]++;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * The root of a cell, halving the path on the way. Only for building, the trail can't undo it.
+     */
+    private int findHalving(int index) {
+        int next = parent.get(index);
+        while (next != index) {
+            int grand = parent.get(next);
+            parent.set(index, grand);
+            index = grand;
+            next = parent.get(index);
+        }
+        return index;
+    }
+
+    /**
+     * Join two islands while building, like union but with nothing to undo
+     * @return the root of the joined island
+     */
+    private int join(int rootP, int rootQ) {
+        if (rootP == rootQ) {
+            return rootP;
+        }
+        long dataP = islandData.get(rootP);
+        long dataQ = islandData.get(rootQ);
+        if ((int) dataP < (int) dataQ) {
+            int swap = rootP;
+            rootP = rootQ;
+            rootQ = swap;
+            long swapData = dataP;
+            dataP = dataQ;
+            dataQ = swapData;
+        }
+        boxes.set(rootP, span(boxOf(rootP, dataP), boxOf(rootQ, dataQ)));
+        islandData.set(rootP, dataP + dataQ);
+        parent.set(rootQ, rootP);
+        return rootP;
+    }
+
+    /**
+     * Join two islands, the smaller under the larger. The sizes and liberties of the two roots add up and their bounding boxes
+     * combine, in O(1), leaving the result in mergedData and mergedBox. The surviving root's old box
+     * and the new child root go on the trail so undo can split them again, except that the piece's
+     * first join leaves its box's grown sides in grown instead, as that old box is easy to work out. The island of the piece
+     * being played is passed with its data and box, which the caller already has. Data and boxes are
+     * only read and written at roots, a piece that goes straight under another island never stores its own.
+     * @param rootP the root of the piece's island
+     * @param dataP its island data
+     * @param boxP its bounding box
+     * @param rootQ the root of another island
+     * @param piece the cell being played, which isn't in the list of roots until it is left one
+     * @param side 0 for white, 1 for black
+     * @return the root of the joined island
+     */
+    private int union(int rootP, long dataP, long boxP, int rootQ, int piece, int side){
+        unions++;
+        long dataQ = islandData.get(rootQ);
+        long boxQ = boxOf(rootQ, dataQ);
+        mergedData = dataP + dataQ;
+        mergedBox = span(boxP, boxQ);
+        // until its first join the piece is a lone root that isn't in the list
+        boolean unlisted = rootP == piece && (int) dataP == 1;
+        long box;
+        if ((int) dataP < (int) dataQ){
+            parent.set(rootP, rootQ);
+            box = boxQ;
+            if (!unlisted) {
+                removeRoot(rootP, side);
+            }
+            int swap = rootP;
+            rootP = rootQ;
+            rootQ = swap;
+        } else {
+            parent.set(rootQ, rootP);
+            box = boxP;
+            if (unlisted) {
+                // it takes over the other root's place in the list
+                int slot = rootSlot.get(rootQ);
+                roots.set(slot, piece);
+                rootSlot.set(piece, slot);
+            } else {
+                removeRoot(rootQ, side);
+            }
+        }
+        islandData.set(rootP, mergedData);
+        boxes.set(rootP, mergedBox);
+        if (unlisted) {
+            grown = grownSides(box, mergedBox);
+        } else {
+            trail.push((int) box);
+            trail.push((int) (box >>> 32));
         }
+        trail.push(rootQ);
+        return rootP;
     }
 
 
@@ -0,0 +1,181 @@
+package islands.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * A copy-on-write array of ints, flat until it is first forked, see Pages
+ */
+final class IntPages extends Pages {
+
+    private int[] flat;
+    private int[][] pages;
+    private IntBuffer[] chunks;
+
+    /**
+     * A new array of zeros
+     * @param length the number of elements
+     */
+    IntPages(int length) {
+        super(length);
+        flat = new int[length];
+    }
+
+    /**
+     * A new array of zeros off the Java heap
+     * @param length the number of elements
+     * @param memory where to allocate it
+     */
+    IntPages(int length, OffHeap memory) {
+        super(length);
+        ByteBuffer[] bytes = memory.allocate(length, 4);
+        chunks = new IntBuffer[bytes.length];
+        for (int c = 0; c < bytes.length; c++) {
+            chunks[c] = bytes[c].asIntBuffer();
+        }
+    }
+
+    private IntPages(int[] flat) {
+        super(flat.length);
+        this.flat = flat;
+    }
+
+    private IntPages(IntPages other) {
+        super(other);
+        pages = other.pages.clone();
+    }
+
+    /**
+     * A copy sharing every page with this array. The first fork splits the flat array into pages.
+     * @return the fork
+     */
+    IntPages fork() {
+        if (chunks != null) {
+            return copy();
+        }
+        if (flat != null) {
+            pages = new int[pageCount][];
+            for (int p = 0; p < pageCount; p++) {
+                pages[p] = Arrays.copyOfRange(flat, p << PAGE_SHIFT, (p << PAGE_SHIFT) + pageLength(p));
+            }
+            flat = null;
+        }
+        return new IntPages(this);
+    }
+
+    /**
+     * A flat copy sharing nothing with this array, so it never takes the paged path.
+     * An off-heap array is copied into direct memory instead.
+     * @return the copy
+     */
+    IntPages copy() {
+        if (chunks != null) {
+            IntPages copy = new IntPages(length, OffHeap.direct());
+            for (int c = 0; c < chunks.length; c++) {
+                copy.chunks[c].put(chunks[c].duplicate().clear());
+            }
+            return copy;
+        }
+        if (flat != null) {
+            return new IntPages(flat.clone());
+        }
+        int[] copy = new int[length];
+        for (int p = 0; p < pageCount; p++) {
+            System.arraycopy(pages[p], 0, copy, p << PAGE_SHIFT, pageLength(p));
+        }
+        return new IntPages(copy);
+    }
+
+    int get(int index) {
+        int[] array = flat;
+        if (array != null) {
+            return array[index];
+        }
+        if (chunks != null) {
+            return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+        }
+        return pages[index >>> PAGE_SHIFT][index & PAGE_MASK];
+    }
+
+    void set(int index, int value) {
+        int[] array = flat;
+        if (array != null) {
+            array[index] = value;
+            return;
+        }
+        if (chunks != null) {
+            chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+            return;
+        }
+        int page = index >>> PAGE_SHIFT;
+        if (shared[page]) {
+            pages[page] = pages[page].clone();
+            shared[page] = false;
+        }
+        pages[page][index & PAGE_MASK] = value;
+    }
+
+    /**
+     * Set every element, shared pages are replaced rather than copied
+     * @param value the new value
+     */
+    void fill(int value) {
+        if (flat != null) {
+            Arrays.fill(flat, value);
+            return;
+        }
+        if (chunks != null) {
+            for (IntBuffer chunk : chunks) {
+                for (int i = 0; i < chunk.capacity(); i++) {
+                    chunk.put(i, value);
+                }
+            }
+            return;
+        }
+        for (int p = 0; p < pageCount; p++) {
+            Arrays.fill(ownPage(p), value);
+        }
+    }
+
+    /**
+     * Set every element to its own index
+     */
+    void fillIndex() {
+        if (flat != null) {
+            for (int i = 0; i < length; i++) {
+                flat[i] = i;
+            }
+            return;
+        }
+        if (chunks != null) {
+            for (int c = 0; c < chunks.length; c++) {
+                int base = c << CHUNK_SHIFT;
+                for (int i = 0; i < chunks[c].capacity(); i++) {
+                    chunks[c].put(i, base + i);
+                }
+            }
+            return;
+        }
+        for (int p = 0; p < pageCount; p++) {
+            int[] page = ownPage(p);
+            int base = p << PAGE_SHIFT;
+            for (int i = 0; i < page.length; i++) {
+                page[i] = base + i;
+            }
+        }
+    }
+
+    /**
+     * A page this array can write to, a fresh one if the current page is shared
+     * @param page the page number
+     * @return the page
+     */
+    private int[] ownPage(int page) {
+        if (shared[page]) {
+            pages[page] = new int[pageLength(page)];
+            shared[page] = false;
+        }
+        return pages[page];
+    }
+}
@@ -0,0 +1,127 @@
+package islands.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A stack of primitive ints kept in fixed size blocks, used as the undo trail of GameModel.
+ * Growing adds a block instead of copying, and popped blocks are kept for reuse,
+ * so once it has grown to the deepest game it stops allocating.
+ * An off-heap stack keeps only its top block on the heap and copies full blocks out to
+ * direct memory, and back when popping reaches them.
+ */
+class IntStack {
+
+    private static final int BLOCK_SHIFT = 14;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private int[][] blocks = new int[8][];
+    private int[] top;
+    private int size;
+    private IntBuffer[] spilled;
+
+    IntStack() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap whether to keep the blocks below the top one in direct memory
+     */
+    IntStack(boolean offHeap) {
+        top = blocks[0] = new int[BLOCK_SIZE];
+        if (offHeap) {
+            spilled = new IntBuffer[8];
+        }
+    }
+
+    void push(int value) {
+        int offset = size & BLOCK_MASK;
+        if (offset == 0 && size > 0) {
+            top = nextBlock(size >>> BLOCK_SHIFT);
+        }
+        top[offset] = value;
+        size++;
+    }
+
+    int pop() {
+        int value = top[--size & BLOCK_MASK];
+        if ((size & BLOCK_MASK) == 0 && size > 0) {
+            top = previousBlock((size >>> BLOCK_SHIFT) - 1);
+        }
+        return value;
+    }
+
+    /**
+     * The block at the given position, allocated the first time the stack reaches it
+     * @param block the block number
+     * @return the block
+     */
+    private int[] nextBlock(int block) {
+        if (spilled != null) {
+            return spill(block - 1);
+        }
+        if (block == blocks.length) {
+            int[][] grown = new int[blocks.length * 2][];
+            System.arraycopy(blocks, 0, grown, 0, blocks.length);
+            blocks = grown;
+        }
+        if (blocks[block] == null) {
+            blocks[block] = new int[BLOCK_SIZE];
+        }
+        return blocks[block];
+    }
+
+    /**
+     * The block popping has just reached
+     * @param block the block number
+     * @return the block, back on the heap
+     */
+    private int[] previousBlock(int block) {
+        if (spilled != null) {
+            spilled[block].get(0, top);
+            return top;
+        }
+        return blocks[block];
+    }
+
+    /**
+     * Copy the full top block out to direct memory so its array can be the next block
+     * @param block the number of the full block
+     * @return the array to use for the next block
+     */
+    private int[] spill(int block) {
+        if (block == spilled.length) {
+            IntBuffer[] grown = new IntBuffer[spilled.length * 2];
+            System.arraycopy(spilled, 0, grown, 0, spilled.length);
+            spilled = grown;
+        }
+        if (spilled[block] == null) {
+            spilled[block] = ByteBuffer.allocateDirect(BLOCK_SIZE * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        spilled[block].put(0, top);
+        return top;
+    }
+
+    /**
+     * Does this stack keep its blocks off the heap
+     * @return true for an off-heap stack
+     */
+    boolean isOffHeap() {
+        return spilled != null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+        top = blocks[0];
+    }
+}
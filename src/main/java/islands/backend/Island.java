@@ -0,0 +1,110 @@
+package islands.backend;
+
+/**
+ * A connected group of pieces of one colour, as GameModel keeps it at the group's union-find
+ * root. A value taken at one moment: it doesn't follow later moves.
+ */
+public final class Island {
+
+    private final int root;
+    private final boolean clr;
+    private final int size;
+    private final int liberties;
+    private final int minRow;
+    private final int maxRow;
+    private final int minCol;
+    private final int maxCol;
+    private final int boardSize;
+
+    Island(int root, boolean clr, int size, int liberties, int minRow, int maxRow, int minCol, int maxCol, int boardSize) {
+        this.root = root;
+        this.clr = clr;
+        this.size = size;
+        this.liberties = liberties;
+        this.minRow = minRow;
+        this.maxRow = maxRow;
+        this.minCol = minCol;
+        this.maxCol = maxCol;
+        this.boardSize = boardSize;
+    }
+
+    /**
+     * The cell that stands for the island, row * size + col. Two pieces are on the same island
+     * when their islands have the same root, until the next move joins islands.
+     * @return the root cell
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * @return GameModel.WHITE or GameModel.BLACK
+     */
+    public boolean getColor() {
+        return clr;
+    }
+
+    /**
+     * The number of pieces
+     * @return the size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The number of (piece, empty neighbour) pairs. An empty cell next to several of the island's
+     * pieces counts once for each, so this can exceed the number of distinct empty neighbours,
+     * but it is zero exactly when the island has no empty neighbour left.
+     * @return the liberty count
+     */
+    public int getLiberties() {
+        return liberties;
+    }
+
+    public int getMinRow() {
+        return minRow;
+    }
+
+    public int getMaxRow() {
+        return maxRow;
+    }
+
+    public int getMinCol() {
+        return minCol;
+    }
+
+    public int getMaxCol() {
+        return maxCol;
+    }
+
+    public boolean touchesTop() {
+        return minRow == 0;
+    }
+
+    public boolean touchesBottom() {
+        return maxRow == boardSize - 1;
+    }
+
+    public boolean touchesLeft() {
+        return minCol == 0;
+    }
+
+    public boolean touchesRight() {
+        return maxCol == boardSize - 1;
+    }
+
+    /**
+     * Does the island join its colour's two edges, white top to bottom or black left to right
+     * @return true if the island ends the game
+     */
+    public boolean spansBoard() {
+        return clr == GameModel.WHITE ? touchesTop() && touchesBottom() : touchesLeft() && touchesRight();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s island of %d at %d, rows %d-%d, cols %d-%d, %d liberties",
+                clr == GameModel.WHITE ? "white" : "black", size, root, minRow, maxRow, minCol, maxCol, liberties);
+    }
+}
@@ -0,0 +1,153 @@
+package islands.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * A copy-on-write array of longs, flat until it is first forked, see Pages
+ */
+final class LongPages extends Pages {
+
+    private long[] flat;
+    private long[][] pages;
+    private LongBuffer[] chunks;
+
+    /**
+     * A new array of zeros
+     * @param length the number of elements
+     */
+    LongPages(int length) {
+        super(length);
+        flat = new long[length];
+    }
+
+    /**
+     * A new array of zeros off the Java heap
+     * @param length the number of elements
+     * @param memory where to allocate it
+     */
+    LongPages(int length, OffHeap memory) {
+        super(length);
+        ByteBuffer[] bytes = memory.allocate(length, 8);
+        chunks = new LongBuffer[bytes.length];
+        for (int c = 0; c < bytes.length; c++) {
+            chunks[c] = bytes[c].asLongBuffer();
+        }
+    }
+
+    private LongPages(long[] flat) {
+        super(flat.length);
+        this.flat = flat;
+    }
+
+    private LongPages(LongPages other) {
+        super(other);
+        pages = other.pages.clone();
+    }
+
+    /**
+     * A copy sharing every page with this array. The first fork splits the flat array into pages.
+     * @return the fork
+     */
+    LongPages fork() {
+        if (chunks != null) {
+            return copy();
+        }
+        if (flat != null) {
+            pages = new long[pageCount][];
+            for (int p = 0; p < pageCount; p++) {
+                pages[p] = Arrays.copyOfRange(flat, p << PAGE_SHIFT, (p << PAGE_SHIFT) + pageLength(p));
+            }
+            flat = null;
+        }
+        return new LongPages(this);
+    }
+
+    /**
+     * A flat copy sharing nothing with this array, so it never takes the paged path.
+     * An off-heap array is copied into direct memory instead.
+     * @return the copy
+     */
+    LongPages copy() {
+        if (chunks != null) {
+            LongPages copy = new LongPages(length, OffHeap.direct());
+            for (int c = 0; c < chunks.length; c++) {
+                copy.chunks[c].put(chunks[c].duplicate().clear());
+            }
+            return copy;
+        }
+        if (flat != null) {
+            return new LongPages(flat.clone());
+        }
+        long[] copy = new long[length];
+        for (int p = 0; p < pageCount; p++) {
+            System.arraycopy(pages[p], 0, copy, p << PAGE_SHIFT, pageLength(p));
+        }
+        return new LongPages(copy);
+    }
+
+    long get(int index) {
+        long[] array = flat;
+        if (array != null) {
+            return array[index];
+        }
+        if (chunks != null) {
+            return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+        }
+        return pages[index >>> PAGE_SHIFT][index & PAGE_MASK];
+    }
+
+    void set(int index, long value) {
+        long[] array = flat;
+        if (array != null) {
+            array[index] = value;
+            return;
+        }
+        if (chunks != null) {
+            chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+            return;
+        }
+        int page = index >>> PAGE_SHIFT;
+        if (shared[page]) {
+            pages[page] = pages[page].clone();
+            shared[page] = false;
+        }
+        pages[page][index & PAGE_MASK] = value;
+    }
+
+    /**
+     * Set every element, shared pages are replaced rather than copied
+     * @param value the new value
+     */
+    void fill(long value) {
+        if (flat != null) {
+            Arrays.fill(flat, value);
+            return;
+        }
+        if (chunks != null) {
+            for (LongBuffer chunk : chunks) {
+                for (int i = 0; i < chunk.capacity(); i++) {
+                    chunk.put(i, value);
+                }
+            }
+            return;
+        }
+        for (int p = 0; p < pageCount; p++) {
+            Arrays.fill(ownPage(p), value);
+        }
+    }
+
+    /**
+     * A page this array can write to, a fresh one if the current page is shared
+     * @param page the page number
+     * @return the page
+     */
+    private long[] ownPage(int page) {
+        if (shared[page]) {
+            pages[page] = new long[pageLength(page)];
+            shared[page] = false;
+        }
+        return pages[page];
+    }
+}
@@ -0,0 +1,71 @@
+package islands.backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Where the arrays of an off-heap GameModel live: direct buffers, or regions of one memory
+ * mapped file laid end to end. A buffer can hold at most 2GB, so an array is split into
+ * chunks of Pages.CHUNK_SIZE elements, each its own buffer.
+ *
+ * The memory is given back when the buffers are garbage collected; there is no explicit free.
+ * Direct buffers count against -XX:MaxDirectMemorySize, mapped regions only against the file system.
+ */
+final class OffHeap {
+
+    private static final long ALIGN = 4096;
+
+    private final FileChannel channel;
+    private long end;
+
+    private OffHeap(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Memory from direct buffers, zeroed when allocated
+     * @return the allocator
+     */
+    static OffHeap direct() {
+        return new OffHeap(null);
+    }
+
+    /**
+     * Memory mapped from a file, which grows as arrays are allocated. The file should start empty;
+     * the channel can be closed once every array is allocated, the mappings stay valid.
+     * @param channel the file, open for reading and writing
+     * @return the allocator
+     */
+    static OffHeap mapped(FileChannel channel) {
+        return new OffHeap(channel);
+    }
+
+    /**
+     * The chunks of a new array of zeros, in native byte order
+     * @param length the number of elements
+     * @param width the bytes per element
+     * @return one buffer per chunk, all but the last holding Pages.CHUNK_SIZE elements
+     */
+    ByteBuffer[] allocate(int length, int width) {
+        int count = (length + Pages.CHUNK_MASK) >>> Pages.CHUNK_SHIFT;
+        ByteBuffer[] chunks = new ByteBuffer[count];
+        for (int c = 0; c < count; c++) {
+            int bytes = Math.min(Pages.CHUNK_SIZE, length - (c << Pages.CHUNK_SHIFT)) * width;
+            chunks[c] = (channel == null ? ByteBuffer.allocateDirect(bytes) : map(bytes)).order(ByteOrder.nativeOrder());
+        }
+        return chunks;
+    }
+
+    private ByteBuffer map(int bytes) {
+        try {
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, end, bytes);
+            end += (bytes + ALIGN - 1) / ALIGN * ALIGN;
+            return region;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package islands.backend;
+
+import java.util.Arrays;
+
+/**
+ * Base of the copy-on-write arrays behind GameModel.
+ * An array starts out flat. The first fork() splits it into fixed size pages and hands out
+ * a copy sharing every page; whichever copy writes to a shared page first gets its own
+ * private copy of that page, so later forks cost one page table rather than the whole array.
+ * Shared pages are never written, so forks can be read and changed on different threads
+ * as long as fork() itself is called by the thread that owns the original.
+ *
+ * An array can instead live off the Java heap in chunks, see OffHeap. Off-heap arrays are never
+ * paged: fork() and copy() both make a full copy in direct memory.
+ */
+abstract class Pages {
+
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * elements per buffer of an off-heap array, at most 1GB of longs
+     */
+    static final int CHUNK_SHIFT = 27;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    final int length;
+    final int pageCount;
+    boolean[] shared;
+
+    /**
+     * @param length the number of elements
+     */
+    Pages(int length) {
+        this.length = length;
+        pageCount = (length + PAGE_MASK) >>> PAGE_SHIFT;
+    }
+
+    /**
+     * Mark every page shared, on this array and on the fork being made from it
+     * @param other the array being forked
+     */
+    Pages(Pages other) {
+        length = other.length;
+        pageCount = other.pageCount;
+        shared = new boolean[pageCount];
+        Arrays.fill(shared, true);
+        if (other.shared == null) {
+            other.shared = new boolean[pageCount];
+        }
+        Arrays.fill(other.shared, true);
+    }
+
+    /**
+     * The number of elements in a page, the last page may be short
+     * @param page the page number
+     * @return the page length
+     */
+    int pageLength(int page) {
+        return Math.min(PAGE_SIZE, length - (page << PAGE_SHIFT));
+    }
+
+    /**
+     * The number of pages this array still shares with a fork
+     * @return the shared page count
+     */
+    int sharedPages() {
+        int count = 0;
+        for (int p = 0; shared != null && p < pageCount; p++) {
+            if (shared[p]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
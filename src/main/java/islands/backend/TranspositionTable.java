@@ -0,0 +1,139 @@
+package islands.backend;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results keyed by Zobrist hash, shared by many threads
+ * without locks. Each slot is two longs, the packed entry and the key XOR the entry; a reader
+ * that sees the halves of two different writes gets a key mismatch and treats it as a miss.
+ * Slots are grouped in buckets of four, a store replaces the same position or else the
+ * shallowest entry in its bucket.
+ *
+ * An entry is packed into one long: the value as float bits, the best move, the search depth
+ * and the bound type. probe returns the packed entry, or MISS, so lookups don't allocate.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    public static final long MISS = 0;
+    public static final int MAX_DEPTH = 63;
+    public static final int MAX_MOVE = (1 << 24) - 2;
+
+    private static final int BUCKET_SLOTS = 4;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] slots;
+    private final int bucketMask;
+
+    /**
+     * A table of at least the given number of entries, rounded up to a power of two
+     * @param entries the number of positions to keep
+     */
+    public TranspositionTable(int entries) {
+        if (entries <= 0 || entries > 1 << 28) {
+            throw new IllegalArgumentException("Invalid table size");
+        }
+        int buckets = Integer.highestOneBit(Math.max(1, (entries + BUCKET_SLOTS - 1) / BUCKET_SLOTS - 1)) << 1;
+        bucketMask = buckets - 1;
+        slots = new long[buckets * BUCKET_SLOTS * 2];
+    }
+
+    /**
+     * The number of entries the table holds
+     * @return the capacity
+     */
+    public int capacity() {
+        return slots.length / 2;
+    }
+
+    /**
+     * Remember a search result
+     * @param key the position's Zobrist hash
+     * @param depth the depth searched, 0 to MAX_DEPTH
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param move the best move found or -1, up to MAX_MOVE
+     * @param value the position's value
+     */
+    public void store(long key, int depth, int bound, int move, float value) {
+        long entry = pack(depth, bound, move, value);
+        int first = bucket(key);
+        int victim = first;
+        int victimDepth = Integer.MAX_VALUE;
+        for (int slot = first; slot < first + BUCKET_SLOTS * 2; slot += 2) {
+            long data = (long) SLOTS.getOpaque(slots, slot);
+            long check = (long) SLOTS.getOpaque(slots, slot + 1);
+            if (data == MISS || (check ^ data) == key) {
+                if (data != MISS && depth(data) > depth) {
+                    return;
+                }
+                victim = slot;
+                break;
+            }
+            if (depth(data) < victimDepth) {
+                victimDepth = depth(data);
+                victim = slot;
+            }
+        }
+        SLOTS.setOpaque(slots, victim, entry);
+        SLOTS.setOpaque(slots, victim + 1, key ^ entry);
+    }
+
+    /**
+     * Look up a position
+     * @param key the position's Zobrist hash
+     * @return the packed entry, read it with depth, bound, move and value, or MISS
+     */
+    public long probe(long key) {
+        int first = bucket(key);
+        for (int slot = first; slot < first + BUCKET_SLOTS * 2; slot += 2) {
+            long data = (long) SLOTS.getOpaque(slots, slot);
+            long check = (long) SLOTS.getOpaque(slots, slot + 1);
+            if (data != MISS && (check ^ data) == key) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Forget every entry, not safe while other threads are storing
+     */
+    public void clear() {
+        Arrays.fill(slots, 0L);
+    }
+
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_SLOTS * 2;
+    }
+
+    private static long pack(int depth, int bound, int move, float value) {
+        if (depth < 0 || depth > MAX_DEPTH || bound < EXACT || bound > UPPER_BOUND || move < -1 || move > MAX_MOVE) {
+            throw new IllegalArgumentException("Entry out of range");
+        }
+        return (long) Float.floatToRawIntBits(value) << 32
+                | (long) (move + 1) << 8
+                | depth << 2
+                | bound;
+    }
+
+    public static int bound(long entry) {
+        return (int) entry & 3;
+    }
+
+    public static int depth(long entry) {
+        return ((int) entry >>> 2) & MAX_DEPTH;
+    }
+
+    public static int move(long entry) {
+        return ((int) entry >>> 8) - 1;
+    }
+
+    public static float value(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+}
@@ -0,0 +1,38 @@
+package islands.backend;
+
+/**
+ * Zobrist keys for board positions. Rather than a random table, which would need two longs
+ * per cell on a 2500x2500 board, each key is a SplitMix64 hash of the cell and colour.
+ * A position's hash is the XOR of the keys of its pieces, so it is updated in O(1)
+ * by a move and by its undo, and positions reached in different orders hash the same.
+ */
+public final class Zobrist {
+
+    /**
+     * XOR this in to tell positions apart by the side to move, GameModel itself doesn't
+     */
+    public static final long BLACK_TO_MOVE = mix(-1L);
+
+    private Zobrist() {
+    }
+
+    /**
+     * The key of one piece
+     * @param index the cell as row * size + col
+     * @param clr GameModel.WHITE or GameModel.BLACK
+     * @return the 64 bit key
+     */
+    public static long key(int index, boolean clr) {
+        return mix(((long) index << 1) | (clr == GameModel.WHITE ? 1 : 0));
+    }
+
+    /**
+     * SplitMix64 finaliser, every input bit affects every output bit
+     */
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
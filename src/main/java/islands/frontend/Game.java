@@ -1,23 +1,33 @@
 package islands.frontend;
 
+import islands.ai.AiPlayer;
 import islands.middle.GameController;
+import islands.middle.Move;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseListener;
+import java.util.List;
 import java.util.Optional;
+import java.util.logging.Logger;
 
 /**
  * The GUI components of the game including grid and buttons
  */
 public class Game extends JPanel implements GameController.ViewDelegate {
 
+    private static final Logger LOGGER = Logger.getLogger(Game.class.getName());
+
     public final static int BOARD_WIDTH = 600;
     public final static int BOARD_HEIGHT = 800;
 
+    private final static String[] OPPONENTS = {"2 players", "AI plays black", "AI plays white"};
+    private final static long AI_THINK_MILLIS = 1000;
+
     private int gridDimension;
 
     private HexGrid hexGrid;
+    private JScrollPane boardView;
     private GameController gc;
 
     private JLabel turnLabel;
@@ -31,6 +41,10 @@ public class Game extends JPanel implements GameController.ViewDelegate {
     private ButtonGroup group;
 
     private JButton simulateGame;
+    private JComboBox<String> opponent;
+    private JButton zoomIn;
+    private JButton zoomOut;
+    private AiPlayer aiPlayer;
     private JLabel timer;
     private JLabel winner;
 
@@ -67,6 +81,14 @@ public class Game extends JPanel implements GameController.ViewDelegate {
         simulateGame = new JButton("new simulated game");
         simulateGame.addActionListener(v->toggleSimulationGame());
 
+        opponent = new JComboBox<>(OPPONENTS);
+        opponent.addActionListener(v->resetGridDimension(gridDimension));
+
+        zoomIn = new JButton("+");
+        zoomIn.addActionListener(v->hexGrid.zoom(1));
+        zoomOut = new JButton("-");
+        zoomOut.addActionListener(v->hexGrid.zoom(-1));
+
         group.add(size5);
         group.add(size11);
         group.add(size25);
@@ -89,6 +111,9 @@ public class Game extends JPanel implements GameController.ViewDelegate {
         southPan.add(size11);
         southPan.add(size25);
         southPan.add(simulateGame);
+        southPan.add(opponent);
+        southPan.add(zoomOut);
+        southPan.add(zoomIn);
 
         //southPan.add(timer);
         southPan.add(turnLabel);
@@ -112,28 +137,29 @@ public class Game extends JPanel implements GameController.ViewDelegate {
      * @param simulation true for a simulation game
      */
     private void initGame(boolean simulation) {
-
-        if (gridDimension > 20) {
-            Hexagon.hexagonLength = 10;
-        }
-        else if(gridDimension > 10)
-            Hexagon.hexagonLength = 20;
-        else if(gridDimension > 6)
-            Hexagon.hexagonLength = 25;
-        else
-            Hexagon.hexagonLength = 35;
-        if (hexGrid != null) {
-            remove(hexGrid);
+        if (boardView != null) {
+            remove(boardView);
         }
         hexGrid = new HexGrid(gridDimension);
+        boardView = new JScrollPane(hexGrid);
+        boardView.setOpaque(false);
+        boardView.getViewport().setOpaque(false);
+        boardView.setBorder(BorderFactory.createEmptyBorder());
 
-        add(hexGrid, BorderLayout.CENTER);
+        add(boardView, BorderLayout.CENTER);
+        revalidate();
         if (gc !=null) {
             gc.stopAll();
         }
         gc = new GameController(simulation);
         gc.setSize(gridDimension);
         gc.setDelegate(this);
+        if (!simulation && opponent.getSelectedIndex() > 0) {
+            if (aiPlayer == null) {
+                aiPlayer = AiPlayer.withTimeBudget(AI_THINK_MILLIS);
+            }
+            gc.setAiPlayer(aiPlayer, opponent.getSelectedIndex() == 1 ? GameController.BLACK : GameController.WHITE);
+        }
 
     }
 
@@ -143,8 +169,8 @@ public class Game extends JPanel implements GameController.ViewDelegate {
      */
     private void resetGridDimension(int dim) {
         resetLabel();
-        if(hexGrid != null) {
-            remove(hexGrid);
+        if(boardView != null) {
+            remove(boardView);
         }
         gridDimension = dim;
         initGame(gc.isSimulationGame());
@@ -158,7 +184,7 @@ public class Game extends JPanel implements GameController.ViewDelegate {
 
         //is the current game a simulation game
         boolean isSimulatedGame = gc.isSimulationGame();
-        System.out.println(isSimulatedGame);
+        LOGGER.fine(() -> "simulation game: " + !isSimulatedGame);
         if(isSimulatedGame) {
             simulateGame.setText("simulated game");
         }
@@ -192,6 +218,11 @@ public class Game extends JPanel implements GameController.ViewDelegate {
         hexGrid.setColor(row, col, clr);
     }
 
+    @Override
+    public void applyMoves(List<Move> moves) {
+        hexGrid.setColors(moves);
+    }
+
     @Override
     public void listen(MouseListener ml) {
         hexGrid.addMouseListener(ml);
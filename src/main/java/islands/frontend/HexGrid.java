@@ -1,50 +1,156 @@
 package islands.frontend;
 
 import islands.middle.GameController;
+import islands.middle.Move;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 /**
- * GUI grid of the hexagon tiles
+ * GUI grid of the hexagon tiles, meant to sit in a JScrollPane.
+ * The grid keeps one colour byte per cell instead of a tile object, and paints only the cells
+ * in the visible part of the board: at normal zoom by stamping a pre-rendered hexagon per cell,
+ * zoomed far out as one pixel per cell. The visible part is cached in an image; a colour change
+ * redraws just that cell into the image and repaints just its bounds, so a move costs the same
+ * to draw on any board size. Ctrl + mouse wheel zooms around the pointer.
  */
-public class HexGrid extends JComponent{
+public class HexGrid extends JComponent implements Scrollable {
+
+    /**
+     * hexagon lengths for each zoom level, from the centre to a corner in pixels.
+     * Lengths below MIN_HEX_LENGTH draw one pixel per cell instead of hexagons
+     */
+    private static final int[] ZOOM_LENGTHS = {1, 4, 6, 8, 10, 15, 20, 25, 35, 50};
+    private static final int MIN_HEX_LENGTH = 4;
+
+    /**
+     * room the rest of the window needs around the board when picking the first zoom level
+     */
+    private static final int CONTROLS_HEIGHT = 100;
+
+    private static final byte EMPTY_TILE = 0;
+    private static final byte WHITE_TILE = 1;
+    private static final byte BLACK_TILE = 2;
+    private static final Color[] PALETTE = {Color.YELLOW, Color.WHITE, Color.BLACK};
 
     int size;
-    Hexagon[][] hexagons;
+    private final byte[] tiles;
+    private int zoom;
+    private int length;
+    private int boardWidth;
+    private int boardHeight;
+    private BufferedImage[] sprites;
+    private BufferedImage view;
+    private Rectangle viewRect;
 
     /**
-     * Create a Hex Grid with size num x num
-     * @param num
+     * Create a Hex Grid with size num x num, zoomed in as far as fits the window
+     * @param num the square size of the board
      */
     public HexGrid(int num) {
-        setPreferredSize(new Dimension(600,800));
         size = num;
-        hexagons = new Hexagon[size][size];
-        makeHexagons();
+        tiles = new byte[size * size];
+        zoom = 0;
+        while (zoom + 1 < ZOOM_LENGTHS.length
+                && boardWidth(ZOOM_LENGTHS[zoom + 1]) <= Game.BOARD_WIDTH
+                && boardHeight(ZOOM_LENGTHS[zoom + 1]) <= Game.BOARD_HEIGHT - CONTROLS_HEIGHT) {
+            zoom++;
+        }
+        layoutBoard();
+        addMouseWheelListener(this::wheelMoved);
+    }
+
+    private int boardWidth(int length) {
+        return length < MIN_HEX_LENGTH ? size : (size - 1) * (length - 1) * 2 + length * 2 + 1;
+    }
+
+    private int boardHeight(int length) {
+        return length < MIN_HEX_LENGTH ? size + (size - 1) / 2 : topCentreY(length) + (size - 1) * length * 2 + length + 1;
     }
 
     /**
-     * Create the hexagon objects
+     * The y of the centre of cell 0,0, the columns climb from there by length-2 each
      */
-    private void makeHexagons() {
-        //1.5 and .75
-        int topLeftY = (int) (Game.BOARD_HEIGHT/ 2.0 - 1.5 * size* (Hexagon.hexagonLength- Hexagon.hexagonLength/2));
-        int topLeftX = (int) (Game.BOARD_WIDTH/ 2.0 - 0.75 * size* (Hexagon.hexagonLength+Hexagon.hexagonLength/3));
-        //iterate the columns first since x is fixed
-        //per column
-        for(int col = 0; col < size; col++) {
-            int x = topLeftX + col * (Hexagon.hexagonLength - 1) * 2;
-            int y = topLeftY - col * (Hexagon.hexagonLength - 2);
-            //int y = startY - row * (Hexagon.hexagonLength-1) * 2;
-            //int x = startX + row * (Hexagon.hexagonLength -2);
-            for(int row = 0; row < size; row++) {
-                int columnY = y + row * (Hexagon.hexagonLength) * 2;
+    private int topCentreY(int length) {
+        return (size - 1) * (length - 2) + length;
+    }
 
-                hexagons[row][col] = new Hexagon(x, columnY, Color.YELLOW);
+    /**
+     * Size the grid and tile images for the current zoom level
+     */
+    private void layoutBoard() {
+        length = ZOOM_LENGTHS[zoom];
+        boardWidth = boardWidth(length);
+        boardHeight = boardHeight(length);
+        sprites = new BufferedImage[PALETTE.length];
+        if (!isPixelMode()) {
+            for (int i = 0; i < PALETTE.length; i++) {
+                sprites[i] = Hexagon.sprite(length, PALETTE[i]);
             }
         }
+        view = null;
+        setPreferredSize(new Dimension(boardWidth, boardHeight));
+        revalidate();
+        repaint();
+    }
+
+    private boolean isPixelMode() {
+        return length < MIN_HEX_LENGTH;
+    }
+
+    /**
+     * Left edge of the board, the board is centred when the component is wider than it
+     */
+    private int offsetX() {
+        return Math.max(0, (getWidth() - boardWidth) / 2);
+    }
+
+    private int offsetY() {
+        return Math.max(0, (getHeight() - boardHeight) / 2);
+    }
+
+    private int centreX(int col) {
+        return offsetX() + length + col * (length - 1) * 2;
+    }
+
+    private int centreY(int row, int col) {
+        return offsetY() + topCentreY(length) - col * (length - 2) + row * length * 2;
+    }
+
+    /**
+     * The pixel of a cell when zoomed out to one pixel per cell, with the same slant as the hexagons
+     */
+    private int pixelY(int row, int col) {
+        return offsetY() + row + (size - 1 - col) / 2;
+    }
+
+    /**
+     * The area one cell paints
+     * @param row the row position
+     * @param col the column position
+     * @return the bounds in component coordinates
+     */
+    Rectangle cellBounds(int row, int col) {
+        if (isPixelMode()) {
+            return new Rectangle(offsetX() + col, pixelY(row, col), 1, 1);
+        }
+        return new Rectangle(centreX(col) - length, centreY(row, col) - length, length * 2 + 1, length * 2 + 1);
+    }
+
+    /**
+     * The outline of one cell at the current zoom, made when asked for
+     * @param row the row position
+     * @param col the column position
+     * @return the hexagon in component coordinates
+     */
+    Polygon cellPolygon(int row, int col) {
+        return new Hexagon(centreX(col), centreY(row, col), length, PALETTE[EMPTY_TILE]).getPolygon();
     }
 
     /**
@@ -54,38 +160,221 @@ public class HexGrid extends JComponent{
      * @param color the color to set
      */
     public void setColor(int row, int col, int color) {
-        if (color == GameController.WHITE) {
-            hexagons[row][col].setColor(Color.WHITE);
+        setColors(List.of(new Move(row, col, color)));
+    }
+
+    /**
+     * Set the colours for several hexagons, drawn into the view together and
+     * repainted as one rectangle around the visible ones
+     * @param moves the pieces to show, in the order they were played
+     */
+    public void setColors(List<Move> moves) {
+        Graphics2D g = null;
+        Rectangle dirty = null;
+        for (Move move : moves) {
+            int row = move.getRow();
+            int col = move.getCol();
+            tiles[row * size + col] = move.getClr() == GameController.WHITE ? WHITE_TILE : BLACK_TILE;
+            Rectangle bounds = cellBounds(row, col);
+            if (view == null) {
+                dirty = dirty == null ? bounds : dirty.union(bounds);
+            } else if (bounds.intersects(viewRect)) {
+                if (g == null) {
+                    g = view.createGraphics();
+                    g.translate(-viewRect.x, -viewRect.y);
+                }
+                drawCell(g, row, col);
+                dirty = dirty == null ? bounds : dirty.union(bounds);
+            }
+        }
+        if (g != null) {
+            g.dispose();
+        }
+        if (dirty != null) {
+            repaint(dirty);
         }
-        else
-            hexagons[row][col].setColor(Color.BLACK);
-        repaint();
     }
 
     /**
-     * Return the array position of the hex corresponding to the given mouse click locatoin
+     * Return the array position of the hex corresponding to the given mouse click locatoin.
+     * Inverts the board layout to find the nearest column and, within each nearby
+     * column, the nearest row, then tests only those few hexagons, so a click costs the same
+     * on any board size. Where neighbouring hexagons overlap the lowest row, then column, wins.
      * @param y mouse y (row)
      * @param x mouse x coordinate (column)
      * @return the corresponding location of the hexagon in the board
      */
     public Optional<Point> getHexDim(int y, int x) {
-        for(int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if(hexagons[row][col].getPolygon().contains(x, y) ){
-                    return Optional.of(new Point(col, row));
+        if (isPixelMode()) {
+            int col = x - offsetX();
+            int row = col < 0 || col >= size ? -1 : y - pixelY(0, col);
+            return row < 0 || row >= size ? Optional.empty() : Optional.of(new Point(col, row));
+        }
+        int colStep = (length - 1) * 2;
+        int rowStep = length * 2;
+        int nearestCol = Math.round((float) (x - centreX(0)) / colStep);
+        Point found = null;
+        for (int col = Math.max(0, nearestCol - 1); col <= Math.min(size - 1, nearestCol + 1); col++) {
+            int nearestRow = Math.round((float) (y - centreY(0, col)) / rowStep);
+            for (int row = Math.max(0, nearestRow - 1); row <= Math.min(size - 1, nearestRow + 1); row++) {
+                if ((found == null || row < found.y || (row == found.y && col < found.x))
+                        && cellPolygon(row, col).contains(x, y)) {
+                    found = new Point(col, row);
                 }
             }
         }
-        return Optional.empty();
+        return Optional.ofNullable(found);
+    }
+
+    /**
+     * Zoom in or out by some levels, keeping the board point under anchor where it is on screen
+     * @param levels positive to zoom in, negative to zoom out
+     * @param anchor the point to keep still, in component coordinates
+     */
+    public void zoom(int levels, Point anchor) {
+        int next = Math.max(0, Math.min(ZOOM_LENGTHS.length - 1, zoom + levels));
+        if (next == zoom) {
+            return;
+        }
+        double fractionX = (anchor.x - offsetX()) / (double) boardWidth;
+        double fractionY = (anchor.y - offsetY()) / (double) boardHeight;
+        Container parent = getParent();
+        Point screen = new Point(anchor);
+        if (parent instanceof JViewport) {
+            Point position = ((JViewport) parent).getViewPosition();
+            screen.translate(-position.x, -position.y);
+        }
+        zoom = next;
+        layoutBoard();
+        if (parent instanceof JViewport) {
+            JViewport viewport = (JViewport) parent;
+            viewport.getParent().validate();
+            int x = (int) (offsetX() + fractionX * boardWidth) - screen.x;
+            int y = (int) (offsetY() + fractionY * boardHeight) - screen.y;
+            x = Math.max(0, Math.min(x, getWidth() - viewport.getWidth()));
+            y = Math.max(0, Math.min(y, getHeight() - viewport.getHeight()));
+            viewport.setViewPosition(new Point(x, y));
+        }
+    }
+
+    /**
+     * Zoom around the middle of what is on screen
+     * @param levels positive to zoom in, negative to zoom out
+     */
+    public void zoom(int levels) {
+        Rectangle visible = getVisibleRect();
+        zoom(levels, new Point((int) visible.getCenterX(), (int) visible.getCenterY()));
+    }
+
+    /**
+     * Ctrl + wheel zooms, the plain wheel goes on to the scroll pane
+     */
+    private void wheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+            zoom(-e.getWheelRotation(), e.getPoint());
+            return;
+        }
+        Container scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+        if (scrollPane != null) {
+            scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, scrollPane));
+        }
     }
 
+    /**
+     * Copy the dirty part of the cached view, drawing the visible cells into a new view
+     * whenever the visible part of the board moves
+     */
     @Override
     public void paintComponent(Graphics g) {
-        for(Hexagon[] hs : hexagons) {
-            for(Hexagon h: hs) {
-                h.draw(g);
+        Rectangle visible = getVisibleRect();
+        if (visible.isEmpty()) {
+            return;
+        }
+        if (view == null || !visible.equals(viewRect)) {
+            if (view == null || view.getWidth() != visible.width || view.getHeight() != visible.height) {
+                view = new BufferedImage(visible.width, visible.height, BufferedImage.TYPE_INT_ARGB);
+            }
+            viewRect = visible;
+            drawView();
+        }
+        g.drawImage(view, viewRect.x, viewRect.y, null);
+    }
+
+    /**
+     * Draw every cell that falls in viewRect into a cleared view
+     */
+    private void drawView() {
+        int[] pixels = ((DataBufferInt) view.getRaster().getDataBuffer()).getData();
+        if (isPixelMode()) {
+            int width = view.getWidth();
+            int[] rgb = new int[PALETTE.length];
+            for (int i = 0; i < rgb.length; i++) {
+                rgb[i] = PALETTE[i].getRGB();
+            }
+            for (int x = 0; x < width; x++) {
+                int col = viewRect.x + x - offsetX();
+                int top = col < 0 || col >= size ? 0 : pixelY(0, col);
+                for (int y = 0; y < view.getHeight(); y++) {
+                    int row = viewRect.y + y - top;
+                    boolean onBoard = col >= 0 && col < size && row >= 0 && row < size;
+                    pixels[y * width + x] = onBoard ? rgb[tiles[row * size + col]] : 0;
+                }
+            }
+            return;
+        }
+        Arrays.fill(pixels, 0);
+        Graphics2D g = view.createGraphics();
+        g.translate(-viewRect.x, -viewRect.y);
+        int colStep = (length - 1) * 2;
+        int rowStep = length * 2;
+        int firstCol = Math.max(0, (viewRect.x - centreX(0) - length) / colStep);
+        int lastCol = Math.min(size - 1, (viewRect.x + viewRect.width - centreX(0) + length) / colStep + 1);
+        for (int col = firstCol; col <= lastCol; col++) {
+            int top = centreY(0, col);
+            int firstRow = Math.max(0, Math.floorDiv(viewRect.y - top - length, rowStep));
+            int lastRow = Math.min(size - 1, Math.floorDiv(viewRect.y + viewRect.height - top + length, rowStep) + 1);
+            for (int row = firstRow; row <= lastRow; row++) {
+                drawCell(g, row, col);
             }
         }
+        g.dispose();
+    }
+
+    private void drawCell(Graphics2D g, int row, int col) {
+        byte tile = tiles[row * size + col];
+        if (isPixelMode()) {
+            g.setColor(PALETTE[tile]);
+            g.fillRect(offsetX() + col, pixelY(row, col), 1, 1);
+        } else {
+            g.drawImage(sprites[tile], centreX(col) - length, centreY(row, col) - length, null);
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
     }
 
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return isPixelMode() ? 16 : length * 2;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+    }
+
+    /**
+     * Stretch to the viewport when the board is narrower, so the board can be centred in it
+     */
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
 }
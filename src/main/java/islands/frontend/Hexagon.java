@@ -1,6 +1,7 @@
 package islands.frontend;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 /**
  * A Single hexagon tile in the game board
@@ -10,7 +11,6 @@ public class Hexagon {
     private Polygon poly;
     private Color color;
 
-    public static int hexagonLength = 25;
     public final static double THETA = (Math.PI*2) / 6.0;
     public final static int HEXAGON_SPACING = 5;
 
@@ -18,18 +18,35 @@ public class Hexagon {
      * create a hexagon centered at x,y having color clr
      * @param x the column
      * @param y the row
+     * @param length the distance from the centre to a corner
      * @param clr the color
      */
-    public Hexagon(int x, int y, Color clr) {
+    public Hexagon(int x, int y, int length, Color clr) {
         color = clr;
         poly = new Polygon();
         for(int i = 0; i < 6; i++ ) {
-            int x1 = (int) (x + hexagonLength * Math.cos(THETA*i));
-            int y1 = (int) (y + hexagonLength * Math.sin(THETA*i));
+            int x1 = (int) (x + length * Math.cos(THETA*i));
+            int y1 = (int) (y + length * Math.sin(THETA*i));
             poly.addPoint(x1, y1);
         }
     }
 
+    /**
+     * Draw one hexagon into an image of its own, centred at length,length, so it can be stamped
+     * with drawImage at centre - length. The pixels match a hexagon drawn in place,
+     * since every corner is an integer offset from the centre.
+     * @param length the distance from the centre to a corner
+     * @param clr the color
+     * @return the image, transparent outside the hexagon
+     */
+    public static BufferedImage sprite(int length, Color clr) {
+        BufferedImage image = new BufferedImage(2 * length + 1, 2 * length + 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        new Hexagon(length, length, length, clr).draw(g);
+        g.dispose();
+        return image;
+    }
+
     public void setColor(Color clr) {
         color = clr;
     }
@@ -0,0 +1,118 @@
+package islands.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative longs with buckets on a log-linear scale, like HdrHistogram:
+ * every power of two is split into SUB_BUCKETS/2 equal buckets, so any recorded value is
+ * reported to within 1/64 of itself while a few thousand buckets cover the whole long range.
+ * Values below SUB_BUCKETS are counted exactly. Recording is lock free and can be done
+ * from any number of threads; reads taken while others record are approximate.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF_BUCKETS = SUB_BUCKETS >>> 1;
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * The bucket a value falls in
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * The largest value that falls in a bucket
+     */
+    static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / HALF_BUCKETS - 1;
+        long mantissa = bucket - (long) shift * HALF_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Count one value
+     * @param value the value, zero or more
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        counts.incrementAndGet(bucket(value));
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * The exact mean of the recorded values
+     * @return the mean, 0 when nothing was recorded
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * The value at or below which a fraction of the recorded values fall, to bucket precision
+     * @param fraction between 0 and 1, e.g. 0.99 for p99
+     * @return the largest value of the bucket holding that fraction, never above max
+     */
+    public long percentile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Invalid fraction " + fraction);
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * count()));
+        long seen = 0;
+        int top = bucket(max());
+        for (int bucket = 0; bucket <= top; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= target) {
+                return Math.min(max(), highestInBucket(bucket));
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Forget every recorded value
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d, mean %.1f, p50 %d, p99 %d, p999 %d, max %d",
+                count(), mean(), percentile(0.5), percentile(0.99), percentile(0.999), max());
+    }
+}
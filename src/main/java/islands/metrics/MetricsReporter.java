@@ -0,0 +1,56 @@
+package islands.metrics;
+
+import java.io.PrintStream;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a MoveMetrics as text at a fixed period on a background thread, until closed
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private final MoveMetrics metrics;
+    private final PrintStream out;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Start printing
+     * @param metrics the metrics to print
+     * @param period the time between two dumps
+     * @param unit the unit of period
+     * @param out where to print
+     */
+    public MetricsReporter(MoveMetrics metrics, long period, TimeUnit unit, PrintStream out) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid period");
+        }
+        this.metrics = metrics;
+        this.out = out;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::dump, period, period, unit);
+    }
+
+    /**
+     * Print the metrics once, now
+     */
+    public void dump() {
+        out.println("-- move metrics at " + LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + " --");
+        out.println(metrics);
+    }
+
+    /**
+     * Stop printing, after a last dump
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        dump();
+    }
+}
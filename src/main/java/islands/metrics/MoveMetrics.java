@@ -0,0 +1,244 @@
+package islands.metrics;
+
+import islands.backend.GameModel;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures moves played through it: the latency of each makePlay, how far its root lookups
+ * walked, how many unions it made and how much the playing thread allocated meanwhile.
+ * Wrap the makePlay calls to measure with makePlay(model, row, col, clr); everything else
+ * plays at full speed. One instance can be shared by every thread, and can be published
+ * over JMX with register and dumped as text with MetricsReporter.
+ */
+public class MoveMetrics implements MoveMetricsMBean {
+
+    private final Histogram makePlayNanos = new Histogram();
+    private final Histogram findStepsPerMove = new Histogram();
+    private final Histogram unionsPerMove = new Histogram();
+    private final LongAdder finds = new LongAdder();
+    private final LongAdder findSteps = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final com.sun.management.ThreadMXBean allocations;
+
+    public MoveMetrics() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+            allocations = (com.sun.management.ThreadMXBean) threads;
+        } else {
+            allocations = null;
+        }
+    }
+
+    /**
+     * The metrics the game itself reports to, registered over JMX the first time it is asked for
+     * @return the shared instance
+     */
+    public static MoveMetrics global() {
+        return Global.INSTANCE;
+    }
+
+    /**
+     * Holds the shared instance, so it is made and registered once, when it is first asked for,
+     * and global needs no lock after that
+     */
+    private static final class Global {
+        private static final MoveMetrics INSTANCE = new MoveMetrics();
+
+        static {
+            if (!INSTANCE.isRegistered("global")) {
+                INSTANCE.register("global");
+            }
+        }
+    }
+
+    /**
+     * Play a move on model and record what it cost
+     * @param model the game to play on
+     * @param row the row to play into
+     * @param col the column to play into
+     * @param clr the colour to play
+     * @return the result of makePlay, true if the move ended the game
+     * @throws IllegalArgumentException as makePlay does, nothing is recorded then
+     */
+    public boolean makePlay(GameModel model, int row, int col, boolean clr) {
+        long findsBefore = model.findCount();
+        long stepsBefore = model.findSteps();
+        long unionsBefore = model.unionCount();
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        boolean over = model.makePlay(row, col, clr);
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        long steps = model.findSteps() - stepsBefore;
+
+        makePlayNanos.record(elapsed);
+        findStepsPerMove.record(steps);
+        unionsPerMove.record(model.unionCount() - unionsBefore);
+        finds.add(model.findCount() - findsBefore);
+        findSteps.add(steps);
+        allocatedBytes.add(Math.max(0, bytes));
+        return over;
+    }
+
+    private long allocatedBytes() {
+        return allocations == null ? 0 : allocations.getCurrentThreadAllocatedBytes();
+    }
+
+    public Histogram makePlayNanos() {
+        return makePlayNanos;
+    }
+
+    public Histogram findStepsPerMove() {
+        return findStepsPerMove;
+    }
+
+    public Histogram unionsPerMove() {
+        return unionsPerMove;
+    }
+
+    /**
+     * Publish these metrics on the platform MBean server
+     * @param name the name key of the bean, unique among MoveMetrics
+     * @return the name it was registered under
+     * @throws IllegalArgumentException if the name is taken or not a valid ObjectName value
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("MoveMetrics " + name + " is already registered", e);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Can't register MoveMetrics " + name, e);
+        }
+    }
+
+    /**
+     * Remove a bean published with register, if it is there
+     * @param name the name it was registered with
+     */
+    public void unregister(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Can't unregister MoveMetrics " + name, e);
+        }
+    }
+
+    private boolean isRegistered(String name) {
+        try {
+            return ManagementFactory.getPlatformMBeanServer().isRegistered(objectName(name));
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("islands:type=MoveMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getMoves() {
+        return makePlayNanos.count();
+    }
+
+    @Override
+    public double getMakePlayMeanNanos() {
+        return makePlayNanos.mean();
+    }
+
+    @Override
+    public long getMakePlayP50Nanos() {
+        return makePlayNanos.percentile(0.5);
+    }
+
+    @Override
+    public long getMakePlayP99Nanos() {
+        return makePlayNanos.percentile(0.99);
+    }
+
+    @Override
+    public long getMakePlayP999Nanos() {
+        return makePlayNanos.percentile(0.999);
+    }
+
+    @Override
+    public long getMakePlayMaxNanos() {
+        return makePlayNanos.max();
+    }
+
+    /**
+     * The mean number of parent links a root lookup followed
+     */
+    @Override
+    public double getMeanFindDepth() {
+        long count = finds.sum();
+        return count == 0 ? 0 : (double) findSteps.sum() / count;
+    }
+
+    @Override
+    public long getFindStepsPerMoveP99() {
+        return findStepsPerMove.percentile(0.99);
+    }
+
+    @Override
+    public long getFindStepsPerMoveMax() {
+        return findStepsPerMove.max();
+    }
+
+    @Override
+    public double getUnionsPerMoveMean() {
+        return unionsPerMove.mean();
+    }
+
+    @Override
+    public long getUnionsPerMoveMax() {
+        return unionsPerMove.max();
+    }
+
+    /**
+     * Bytes allocated by the playing threads during measured moves, 0 where the JVM can't tell
+     */
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public double getAllocatedBytesPerMove() {
+        long moves = getMoves();
+        return moves == 0 ? 0 : (double) getAllocatedBytes() / moves;
+    }
+
+    @Override
+    public void reset() {
+        makePlayNanos.reset();
+        findStepsPerMove.reset();
+        unionsPerMove.reset();
+        finds.reset();
+        findSteps.reset();
+        allocatedBytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("makePlay ns: %s%nfind steps per move: %s (mean depth %.2f)%n"
+                        + "unions per move: %s%nallocated: %d bytes (%.1f per move)",
+                makePlayNanos, findStepsPerMove, getMeanFindDepth(), unionsPerMove,
+                getAllocatedBytes(), getAllocatedBytesPerMove());
+    }
+}
@@ -0,0 +1,38 @@
+package islands.metrics;
+
+/**
+ * The JMX view of MoveMetrics, times are in nanoseconds
+ */
+public interface MoveMetricsMBean {
+
+    long getMoves();
+
+    double getMakePlayMeanNanos();
+
+    long getMakePlayP50Nanos();
+
+    long getMakePlayP99Nanos();
+
+    long getMakePlayP999Nanos();
+
+    long getMakePlayMaxNanos();
+
+    double getMeanFindDepth();
+
+    long getFindStepsPerMoveP99();
+
+    long getFindStepsPerMoveMax();
+
+    double getUnionsPerMoveMean();
+
+    long getUnionsPerMoveMax();
+
+    long getAllocatedBytes();
+
+    double getAllocatedBytesPerMove();
+
+    /**
+     * Start counting again from zero
+     */
+    void reset();
+}
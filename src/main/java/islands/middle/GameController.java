@@ -6,25 +6,44 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import islands.ai.AiPlayer;
+import islands.ai.SearchResult;
 import islands.backend.GameModel;
+import islands.metrics.MoveMetrics;
 
 /**
  * Control the game flow
  */
 public class GameController implements MouseListener {
 
+    private static final Logger LOGGER = Logger.getLogger(GameController.class.getName());
+
     private ViewDelegate viewDelegate;
+    private ViewUpdates updates;
     private GameModel model;
     private int turn;
     private boolean gameOver;
     private int size;
 
     private Timer timer;
+    private final SplittableRandom random;
 
     private boolean simulationGame;
 
+    private AiPlayer aiPlayer;
+    private int aiTurn;
+    private boolean aiThinking;
+    private ExecutorService aiExecutor;
+
     public final static int WHITE = -1;
     public final static int BLACK = 1;
 
@@ -46,6 +65,16 @@ public class GameController implements MouseListener {
          */
         void setColor(int row, int col, int clr);
 
+        /**
+         * play several pieces at once, the controller sends moves this way at most once per frame
+         * @param moves the pieces in the order they were played
+         */
+        default void applyMoves(List<Move> moves) {
+            for (Move move : moves) {
+                setColor(move.getRow(), move.getCol(), move.getClr());
+            }
+        }
+
         /**
          * Listen for Mouse clicks
          * @param ml the mouse listener
@@ -85,6 +114,16 @@ public class GameController implements MouseListener {
      * @param simulationGame true for a simulated game and false for 2 player game
      */
     public GameController(boolean simulationGame) {
+        this(simulationGame, new SplittableRandom());
+    }
+
+    /**
+     * constructor with a seeded source of random moves so simulations can be repeated
+     * @param simulationGame true for a simulated game and false for 2 player game
+     * @param random the source of simulated moves
+     */
+    public GameController(boolean simulationGame, SplittableRandom random) {
+        this.random = random;
         turn = WHITE;
         gameOver = false;
         this.simulationGame = simulationGame;
@@ -99,7 +138,69 @@ public class GameController implements MouseListener {
      */
     public void toggleTurn() {
         turn = turn * -1;
-        viewDelegate.displayTurn(turn == BLACK ? "Black": "White");
+        updates.turn(turn == BLACK ? "Black": "White");
+        scheduleAiMove();
+    }
+
+    /**
+     * Let an AI play one of the colours, the other is played by mouse clicks
+     * @param ai the player to ask for moves
+     * @param clr WHITE or BLACK
+     */
+    public void setAiPlayer(AiPlayer ai, int clr) {
+        aiPlayer = ai;
+        aiTurn = clr;
+        if (aiExecutor == null) {
+            aiExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ai-player");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scheduleAiMove();
+    }
+
+    /**
+     * If it is the AI's turn, search a snapshot of the game off the event thread and play
+     * the result back on the event thread. A result for a game that has since been replaced is dropped.
+     */
+    private void scheduleAiMove() {
+        if (aiPlayer == null || aiThinking || gameOver || turn != aiTurn) {
+            return;
+        }
+        aiThinking = true;
+        GameModel current = model;
+        GameModel position = model.snapshot();
+        boolean color = turn == WHITE ? GameModel.WHITE : GameModel.BLACK;
+        CompletableFuture.supplyAsync(() -> aiPlayer.chooseMove(position, color), aiExecutor)
+                .whenComplete((result, failure) -> SwingUtilities.invokeLater(() -> {
+                    if (failure != null) {
+                        aiMoveFailed(failure);
+                    } else {
+                        playAiMove(current, result);
+                    }
+                }));
+    }
+
+    /**
+     * Give up on a search that threw, on the event thread, so the AI can be asked again
+     * @param failure what the search threw
+     */
+    private void aiMoveFailed(Throwable failure) {
+        aiThinking = false;
+        LOGGER.log(Level.WARNING, "AI move failed", failure);
+    }
+
+    /**
+     * Play the AI's chosen move, on the event thread
+     * @param searched the game the AI searched
+     * @param result the AI's choice
+     */
+    private void playAiMove(GameModel searched, SearchResult result) {
+        aiThinking = false;
+        if (searched == model && !gameOver) {
+            tryRowCol(result.getMove() / size, result.getMove() % size);
+        }
     }
 
     /**
@@ -112,11 +213,13 @@ public class GameController implements MouseListener {
     }
 
     /**
-     * Set the view delegate where output is sent
+     * Set the view delegate where output is sent. Updates during play reach it
+     * in batches, at most once per frame, on the event thread.
      * @param vd the view delegate
      */
     public void setDelegate(ViewDelegate vd) {
         viewDelegate = vd;
+        updates = new ViewUpdates(vd);
         vd.displayTurn("White");
         vd.listen(this);
     }
@@ -128,7 +231,7 @@ public class GameController implements MouseListener {
     public void tryRowColFromPoint(Point p) {
         int col = p.x;
         int row = p.y;
-        System.out.println("click row:" + row + " col:" + col);
+        LOGGER.fine(() -> "click row:" + row + " col:" + col);
         tryRowCol(row, col);
     }
 
@@ -139,29 +242,31 @@ public class GameController implements MouseListener {
      */
     public void tryRowCol(int row, int col) {
         if(model.canPlay(row, col)) {
-            viewDelegate.setColor(row, col, turn);
+            updates.move(row, col, turn);
             long startTime = System.nanoTime();
             boolean color = GameModel.BLACK; //black
             if (turn == -1) {
                 color = GameModel.WHITE;
             }
-            if(model.makePlay(row, col, color)) {
-                System.out.println("winner");
+            if(MoveMetrics.global().makePlay(model, row, col, color)) {
                 gameOver = true;
+                String winner;
                 if(model.whiteScore() > model.blackScore())
-                    viewDelegate.setWinner("WHITE");
+                    winner = "WHITE";
                 else if (model.blackScore() > model.whiteScore())
-                    viewDelegate.setWinner("BLACK");
+                    winner = "BLACK";
                 else
-                    viewDelegate.setWinner("TIE");
+                    winner = "TIE";
+                LOGGER.log(Level.INFO, "winner {0} after {1} moves", new Object[]{winner, model.moveCount()});
+                updates.winner(winner);
             }
             else {
                 toggleTurn();
             }
             long endTime = System.nanoTime();
             long timeElapsed = endTime - startTime;
-            viewDelegate.setTime(timeElapsed / 1000000.0);
-            viewDelegate.setScore(model.whiteScore(), model.blackScore());
+            updates.time(timeElapsed / 1000000.0);
+            updates.score(model.whiteScore(), model.blackScore());
         }
 
     }
@@ -173,30 +278,9 @@ public class GameController implements MouseListener {
         ActionListener simulateTurn = new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                Random rand = new Random();
-                int row = rand.nextInt(size);
-                int col = rand.nextInt(size);
-
-                int tries = 0;
-                while(!model.canPlay(row, col) && tries < 50) {
-                    row = rand.nextInt(size);
-                    col = rand.nextInt(size);
-                    tries++;
-                }
-                //having trouble with randoms, just find the first match
-                if (tries == 50) {
-                    for(int i = 0; i < size; i++) {
-                        for(int j = 0; j < size; j++) {
-                            if (model.canPlay(i,j)) {
-                                row = i;
-                                col = j;
-                                break;
-                            }
-                        }
-                    }
-                }
-                //guaranteed we can play since game is over otherwise
-                tryRowCol(row, col);
+                //guaranteed there is an empty cell since game is over otherwise
+                int index = model.randomEmptyCell(random);
+                tryRowCol(index / size, index % size);
                 if (gameOver) {
                     timer.stop();
                 }
@@ -215,12 +299,18 @@ public class GameController implements MouseListener {
     }
 
     /**
-     * stop the timer (not currently used)
+     * stop the timer, any AI search and any view updates still waiting
      */
     public void stopAll() {
+        if(updates != null) {
+            updates.cancel();
+        }
         if(timer != null) {
             timer.stop();
         }
+        if(aiExecutor != null) {
+            aiExecutor.shutdownNow();
+        }
     }
 
 
@@ -234,6 +324,9 @@ public class GameController implements MouseListener {
         if(simulationGame) {
             return;
         }
+        if(aiPlayer != null && turn == aiTurn) {
+            return;
+        }
         if(!gameOver) {
             Optional<Point> point = viewDelegate.getHexDim(e.getY(), e.getX());
             point.ifPresent(this::tryRowColFromPoint);
@@ -0,0 +1,39 @@
+package islands.middle;
+
+/**
+ * One piece played on the board, as handed to the view
+ */
+public final class Move {
+
+    private final int row;
+    private final int col;
+    private final int clr;
+
+    /**
+     * @param row the row played into
+     * @param col the column played into
+     * @param clr GameController.WHITE or GameController.BLACK
+     */
+    public Move(int row, int col, int clr) {
+        this.row = row;
+        this.col = col;
+        this.clr = clr;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public int getClr() {
+        return clr;
+    }
+
+    @Override
+    public String toString() {
+        return (clr == GameController.WHITE ? "white" : "black") + " " + row + "," + col;
+    }
+}
@@ -0,0 +1,507 @@
+package islands.middle;
+
+import islands.backend.GameEvents;
+import islands.backend.GameModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams one game to any number of read-only spectators as compact binary frames. The feed
+ * follows the game through its GameEvents ring, so the players' thread only publishes events
+ * and never waits on a spectator; the frames are built and written on a scheduler thread.
+ *
+ * Every frame starts with a tag byte, numbers are unsigned LEB128 varints:
+ * <pre>
+ * MOVE      cell * 2 + 1 for white, cell * 2 for black, the cell as row * size + col
+ * UNDO      cell
+ * SCORE     whiteScore blackScore, only sent when a score changed
+ * OVER      nothing, the game is over
+ * RESET     nothing, the board was cleared
+ * KEYFRAME  size whiteScore blackScore, a byte 1 if the game is over, then the cells
+ *           four to a byte from the low bits up: 0 empty, 1 white, 2 black
+ * </pre>
+ * A keyframe is sent to everyone every KEYFRAME_INTERVAL moves. A spectator who joins late,
+ * or falls so far behind that its socket can't take what is written, is sent the latest keyframe
+ * and the frames since, so it never replays more than KEYFRAME_INTERVAL moves. SpectatorView
+ * reads the frames back.
+ *
+ * The frames of one round are shared by every spectator and each gets them in one gathering
+ * write, only what a socket can't take straight away is copied for it. Spectators only listen:
+ * anything one sends is read and thrown away, and one that hangs up is dropped in the next round.
+ */
+public final class SpectatorFeed implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SpectatorFeed.class.getName());
+
+    public static final byte MOVE = 1;
+    public static final byte UNDO = 2;
+    public static final byte SCORE = 3;
+    public static final byte OVER = 4;
+    public static final byte RESET = 5;
+    public static final byte KEYFRAME = 6;
+
+    /**
+     * the two bits of a cell in a keyframe
+     */
+    static final byte EMPTY_CELL = 0;
+    static final byte WHITE_CELL = 1;
+    static final byte BLACK_CELL = 2;
+
+    /**
+     * the most moves a late spectator is sent after the keyframe it starts from
+     */
+    public static final int KEYFRAME_INTERVAL = 256;
+
+    /**
+     * the time between two rounds of frames
+     */
+    static final int FRAME_MILLIS = 10;
+
+    /**
+     * the events kept for the feed if the game has no ring yet
+     */
+    static final int RING_CAPACITY = 1 << 14;
+
+    /**
+     * events read in one round, and rounds in one go before letting other feeds have the thread
+     */
+    private static final int ROUND_EVENTS = 4096;
+    private static final int MAX_ROUNDS = 16;
+
+    /**
+     * the longest frame an event turns into, a tag and two five byte varints
+     */
+    private static final int MAX_FRAME = 11;
+
+    /**
+     * most events per move: the move, a score and game over
+     */
+    private static final int EVENTS_PER_MOVE = 3;
+
+    private final GameModel model;
+    private final Executor gameThread;
+    private final int size;
+
+    // the board as the events have left it, in keyframe values, only touched by the scheduler thread
+    private final byte[] cells;
+    private int whiteScore;
+    private int blackScore;
+    private boolean over;
+    private int movesSinceKeyframe;
+
+    private final ByteBuffer round = ByteBuffer.allocateDirect(ROUND_EVENTS * MAX_FRAME);
+    private final ByteBuffer keyframe;
+    private final ByteBuffer sinceKeyframe;
+    private int roundLength;
+    private int keyframeLength;
+    private int sinceLength;
+
+    private final GameEvents.Handler encoder = this::encode;
+    private GameEvents.Cursor cursor;
+    private volatile Sync sync;
+    private boolean syncing;
+
+    private final Queue<SocketChannel> joining = new ConcurrentLinkedQueue<>();
+    private final List<Spectator> spectators = new CopyOnWriteArrayList<>();
+    // every spectator's channel, ready when it has sent something or hung up
+    private final Selector hangUps;
+    private final ByteBuffer discard = ByteBuffer.allocateDirect(512);
+    private final ScheduledFuture<?> rounds;
+    private volatile boolean closed;
+
+    /**
+     * The position and the events that follow it, taken together on the game's thread
+     */
+    private static final class Sync {
+        final GameModel position;
+        final GameEvents.Cursor cursor;
+
+        Sync(GameModel position, GameEvents.Cursor cursor) {
+            this.position = position;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * One spectator's socket and whatever it couldn't take yet
+     */
+    private static final class Spectator {
+        final SocketChannel channel;
+        final ByteBuffer[] sources = new ByteBuffer[2];
+        ByteBuffer pending = ByteBuffer.allocate(0);
+        boolean needsKeyframe = true;
+
+        Spectator(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A feed of a game, attaching a GameEvents ring to it if it has none
+     * @param model the game
+     * @param gameThread runs tasks on the thread that plays the game, the feed only uses it to
+     *                   take a snapshot when it starts and if it ever falls a whole ring behind
+     * @param scheduler the thread the feed builds and writes frames on, it can be shared by many feeds
+     * @throws IOException if the feed can't open a selector to watch its spectators with
+     */
+    public SpectatorFeed(GameModel model, Executor gameThread, ScheduledExecutorService scheduler) throws IOException {
+        this.model = model;
+        this.gameThread = gameThread;
+        this.size = model.size;
+        cells = new byte[size * size];
+        int cellBytes = (size * size + 3) / 4;
+        keyframe = ByteBuffer.allocateDirect(4 * 5 + 1 + cellBytes);
+        sinceKeyframe = ByteBuffer.allocateDirect((KEYFRAME_INTERVAL * EVENTS_PER_MOVE + ROUND_EVENTS) * MAX_FRAME);
+        hangUps = Selector.open();
+        requestSync();
+        rounds = scheduler.scheduleWithFixedDelay(this::run, 0, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start sending the game to a spectator, from the latest keyframe. The feed owns the
+     * channel from now on and closes it when the spectator hangs up or the feed closes.
+     * @param channel a connected socket, switched to non-blocking mode here
+     * @throws IOException if the channel can't be made non-blocking
+     */
+    public void subscribe(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        joining.add(channel);
+        if (closed && joining.remove(channel)) {
+            channel.close();
+        }
+    }
+
+    /**
+     * The number of spectators being sent the game
+     * @return the count, not counting those joined since the last round
+     */
+    public int spectatorCount() {
+        return spectators.size();
+    }
+
+    /**
+     * Stop sending and hang up on every spectator. The game keeps publishing to its ring.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        rounds.cancel(false);
+        for (Spectator spectator : spectators) {
+            closeQuietly(spectator.channel);
+        }
+        spectators.clear();
+        for (SocketChannel channel = joining.poll(); channel != null; channel = joining.poll()) {
+            closeQuietly(channel);
+        }
+        try {
+            hangUps.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "close failed", e);
+        }
+    }
+
+    private synchronized void run() {
+        try {
+            Sync fresh = sync;
+            if (fresh != null) {
+                sync = null;
+                adopt(fresh);
+            }
+            if (cursor == null || closed) {
+                return;
+            }
+            for (SocketChannel channel = joining.poll(); channel != null; channel = joining.poll()) {
+                join(channel);
+            }
+            dropHangUps();
+            int count = 0;
+            do {
+                if (!round()) {
+                    return;
+                }
+            } while (cursor.backlog() > 0 && ++count < MAX_ROUNDS);
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule and silently end the feed
+            LOGGER.log(Level.WARNING, "spectator feed failed", e);
+        }
+    }
+
+    private void join(SocketChannel channel) {
+        Spectator spectator = new Spectator(channel);
+        try {
+            channel.register(hangUps, SelectionKey.OP_READ, spectator);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "spectator dropped", e);
+            closeQuietly(channel);
+            return;
+        }
+        spectators.add(spectator);
+    }
+
+    /**
+     * Drop the spectators who have hung up, throwing away anything the others have sent
+     */
+    private void dropHangUps() {
+        try {
+            if (hangUps.selectNow() == 0) {
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "can't check spectators", e);
+            return;
+        }
+        for (SelectionKey key : hangUps.selectedKeys()) {
+            Spectator spectator = (Spectator) key.attachment();
+            try {
+                int read;
+                do {
+                    discard.clear();
+                    read = spectator.channel.read(discard);
+                } while (read > 0);
+                if (read == 0) {
+                    continue;
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "spectator dropped", e);
+            }
+            drop(spectator);
+        }
+        hangUps.selectedKeys().clear();
+    }
+
+    private void drop(Spectator spectator) {
+        spectators.remove(spectator);
+        closeQuietly(spectator.channel);
+    }
+
+    /**
+     * Ask the game's thread for a snapshot and a cursor that starts just after it
+     */
+    private void requestSync() {
+        if (syncing) {
+            return;
+        }
+        syncing = true;
+        gameThread.execute(() -> {
+            GameEvents events = model.getEvents();
+            if (events == null) {
+                events = new GameEvents(RING_CAPACITY);
+                model.setEvents(events);
+            }
+            sync = new Sync(model.snapshot(), events.subscribe());
+        });
+    }
+
+    /**
+     * Start again from a snapshot: rebuild the board, take a keyframe and send it to everyone
+     */
+    private void adopt(Sync fresh) {
+        syncing = false;
+        cursor = fresh.cursor;
+        GameModel position = fresh.position;
+        for (int cell = 0; cell < cells.length; cell++) {
+            byte value = position.cell(cell);
+            cells[cell] = value == GameModel.WHITE_CELL ? WHITE_CELL : value == GameModel.BLACK_CELL ? BLACK_CELL : EMPTY_CELL;
+        }
+        whiteScore = fresh.position.whiteScore();
+        blackScore = fresh.position.blackScore();
+        over = fresh.position.isGameOver();
+        takeKeyframe();
+        for (Spectator spectator : spectators) {
+            spectator.needsKeyframe = true;
+        }
+    }
+
+    /**
+     * Turn the events waiting into frames and send them
+     * @return false if events were lost and the feed is waiting for a snapshot
+     */
+    private boolean round() {
+        round.clear();
+        long lost = cursor.lost();
+        cursor.poll(encoder, ROUND_EVENTS);
+        if (cursor.lost() != lost) {
+            LOGGER.warning(() -> "spectator feed fell " + (cursor.lost() - lost) + " events behind, starting again");
+            cursor = null;
+            requestSync();
+            return false;
+        }
+        roundLength = round.position();
+        boolean fresh = movesSinceKeyframe >= KEYFRAME_INTERVAL;
+        if (fresh) {
+            takeKeyframe();
+        } else {
+            round.flip();
+            sinceKeyframe.limit(sinceKeyframe.capacity()).position(sinceLength);
+            sinceKeyframe.put(round);
+            sinceLength = sinceKeyframe.position();
+        }
+        for (Spectator spectator : spectators) {
+            try {
+                send(spectator, fresh);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "spectator dropped", e);
+                drop(spectator);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write a round to one spectator: the round's frames and any new keyframe, or the latest
+     * keyframe and everything since if it is new or was left behind
+     */
+    private void send(Spectator spectator, boolean fresh) throws IOException {
+        ByteBuffer pending = spectator.pending;
+        if (pending.hasRemaining()) {
+            spectator.channel.write(pending);
+            if (pending.hasRemaining()) {
+                // still full, skip this round and catch up from a keyframe later
+                spectator.needsKeyframe = true;
+                return;
+            }
+        }
+        ByteBuffer[] sources = spectator.sources;
+        int count = 0;
+        if (spectator.needsKeyframe) {
+            spectator.needsKeyframe = false;
+            sources[count++] = view(keyframe, keyframeLength);
+            sources[count++] = view(sinceKeyframe, sinceLength);
+        } else {
+            if (roundLength > 0) {
+                sources[count++] = view(round, roundLength);
+            }
+            if (fresh) {
+                sources[count++] = view(keyframe, keyframeLength);
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        spectator.channel.write(sources, 0, count);
+        int left = 0;
+        for (int i = 0; i < count; i++) {
+            left += sources[i].remaining();
+        }
+        if (left > 0) {
+            if (pending.capacity() < left) {
+                pending = ByteBuffer.allocate(left);
+                spectator.pending = pending;
+            }
+            pending.clear();
+            for (int i = 0; i < count; i++) {
+                pending.put(sources[i]);
+            }
+            pending.flip();
+        }
+    }
+
+    private static ByteBuffer view(ByteBuffer frames, int length) {
+        frames.limit(length).position(0);
+        return frames;
+    }
+
+    /**
+     * Write the board as it stands as a keyframe, which starts a new run of frames since
+     */
+    private void takeKeyframe() {
+        ByteBuffer out = keyframe;
+        out.clear();
+        out.put(KEYFRAME);
+        writeVarint(out, size);
+        writeVarint(out, whiteScore);
+        writeVarint(out, blackScore);
+        out.put((byte) (over ? 1 : 0));
+        int packed = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            packed |= cells[cell] << ((cell & 3) << 1);
+            if ((cell & 3) == 3) {
+                out.put((byte) packed);
+                packed = 0;
+            }
+        }
+        if ((cells.length & 3) != 0) {
+            out.put((byte) packed);
+        }
+        keyframeLength = out.position();
+        sinceLength = 0;
+        movesSinceKeyframe = 0;
+    }
+
+    /**
+     * Apply one event to the board and add its frame to the round
+     */
+    private void encode(long sequence, long event) {
+        int cell = GameEvents.cell(event);
+        switch (GameEvents.type(event)) {
+            case GameEvents.MOVE:
+                boolean white = GameEvents.color(event) == GameModel.WHITE;
+                cells[cell] = white ? WHITE_CELL : BLACK_CELL;
+                round.put(MOVE);
+                writeVarint(round, (long) cell << 1 | (white ? 1 : 0));
+                movesSinceKeyframe++;
+                break;
+            case GameEvents.UNDONE:
+                cells[cell] = EMPTY_CELL;
+                over = false;
+                round.put(UNDO);
+                writeVarint(round, cell);
+                movesSinceKeyframe++;
+                break;
+            case GameEvents.SCORE:
+                whiteScore = GameEvents.whiteScore(event);
+                blackScore = GameEvents.blackScore(event);
+                round.put(SCORE);
+                writeVarint(round, whiteScore);
+                writeVarint(round, blackScore);
+                break;
+            case GameEvents.GAME_OVER:
+                over = true;
+                round.put(OVER);
+                break;
+            case GameEvents.RESET:
+                Arrays.fill(cells, EMPTY_CELL);
+                whiteScore = 0;
+                blackScore = 0;
+                over = false;
+                round.put(RESET);
+                // an empty board is the cheapest keyframe there is
+                movesSinceKeyframe = KEYFRAME_INTERVAL;
+                break;
+            default:
+                // merges only show up in the scores
+                break;
+        }
+    }
+
+    static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "close failed", e);
+        }
+    }
+}
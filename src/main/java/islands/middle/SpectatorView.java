@@ -0,0 +1,202 @@
+package islands.middle;
+
+import islands.backend.GameModel;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A spectator's copy of a game, kept up to date from the frames of a SpectatorFeed.
+ * Frames can arrive split anywhere: read applies every whole frame it is given and leaves
+ * the bytes of a partial one in the buffer for the next call. Not thread safe.
+ */
+public final class SpectatorView {
+
+    private int size;
+    private byte[] cells;
+    private int whiteScore;
+    private int blackScore;
+    private boolean over;
+    private int keyframes;
+    private int movesSinceKeyframe;
+
+    /**
+     * Apply the frames at the buffer's position, reading up to its limit
+     * @param in the frames received, left at the start of the first partial frame
+     * @return the number of frames applied
+     * @throws IllegalStateException for a frame that isn't understood, or a move before the first keyframe
+     */
+    public int read(ByteBuffer in) {
+        int count = 0;
+        while (in.hasRemaining()) {
+            int start = in.position();
+            try {
+                apply(in);
+            } catch (BufferUnderflowException e) {
+                in.position(start);
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private void apply(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case SpectatorFeed.MOVE: {
+                long move = readVarint(in);
+                int cell = cell(move >>> 1);
+                cells[cell] = (move & 1) != 0 ? SpectatorFeed.WHITE_CELL : SpectatorFeed.BLACK_CELL;
+                movesSinceKeyframe++;
+                break;
+            }
+            case SpectatorFeed.UNDO: {
+                int cell = cell(readVarint(in));
+                cells[cell] = SpectatorFeed.EMPTY_CELL;
+                over = false;
+                movesSinceKeyframe++;
+                break;
+            }
+            case SpectatorFeed.SCORE: {
+                int white = (int) readVarint(in);
+                blackScore = (int) readVarint(in);
+                whiteScore = white;
+                break;
+            }
+            case SpectatorFeed.OVER:
+                over = true;
+                break;
+            case SpectatorFeed.RESET:
+                board();
+                cells = new byte[size * size];
+                whiteScore = 0;
+                blackScore = 0;
+                over = false;
+                break;
+            case SpectatorFeed.KEYFRAME:
+                keyframe(in);
+                break;
+            default:
+                throw new IllegalStateException("Unknown frame " + tag);
+        }
+    }
+
+    private void keyframe(ByteBuffer in) {
+        int sz = (int) readVarint(in);
+        int white = (int) readVarint(in);
+        int black = (int) readVarint(in);
+        boolean gameOver = in.get() != 0;
+        if (sz < 1 || sz > GameModel.MAX_SIZE) {
+            throw new IllegalStateException("Invalid board size " + sz);
+        }
+        int cellCount = sz * sz;
+        if (in.remaining() < (cellCount + 3) / 4) {
+            throw new BufferUnderflowException();
+        }
+        byte[] board = cells != null && cells.length == cellCount ? cells : new byte[cellCount];
+        int packed = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if ((cell & 3) == 0) {
+                packed = in.get();
+            }
+            board[cell] = (byte) (packed >>> ((cell & 3) << 1) & 3);
+        }
+        size = sz;
+        cells = board;
+        whiteScore = white;
+        blackScore = black;
+        over = gameOver;
+        keyframes++;
+        movesSinceKeyframe = 0;
+    }
+
+    private int cell(long cell) {
+        board();
+        if (cell >= cells.length) {
+            throw new IllegalStateException("Invalid cell " + cell);
+        }
+        return (int) cell;
+    }
+
+    private void board() {
+        if (cells == null) {
+            throw new IllegalStateException("Frame before the first keyframe");
+        }
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    /**
+     * The length of one side of the board
+     * @return the board size, 0 until the first keyframe
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Is there a piece of one colour on a cell
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param clr GameModel.WHITE or GameModel.BLACK
+     * @return true if the cell holds a piece of that colour
+     * @throws IllegalArgumentException for invalid row and col
+     */
+    public boolean has(int row, int col, boolean clr) {
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new IllegalArgumentException("Invalid Row or Column");
+        }
+        return cells[row * size + col] == (clr == GameModel.WHITE ? SpectatorFeed.WHITE_CELL : SpectatorFeed.BLACK_CELL);
+    }
+
+    /**
+     * White's score as of the frames read
+     * @return white's island count
+     */
+    public int whiteScore() {
+        return whiteScore;
+    }
+
+    /**
+     * Black's score as of the frames read
+     * @return black's island count
+     */
+    public int blackScore() {
+        return blackScore;
+    }
+
+    /**
+     * Has a player joined their edges, as of the frames read
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return over;
+    }
+
+    /**
+     * The number of keyframes read
+     * @return the count
+     */
+    public int keyframes() {
+        return keyframes;
+    }
+
+    /**
+     * The moves and undos read since the last keyframe
+     * @return the count
+     */
+    public int movesSinceKeyframe() {
+        return movesSinceKeyframe;
+    }
+}
@@ -0,0 +1,143 @@
+package islands.middle;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects what the controller wants shown and hands it to the view at most once per frame.
+ * Moves are passed on together through ViewDelegate.applyMoves; turn, time and score are
+ * overwritten while they wait, so only the latest of each reaches the view. Updates can be
+ * posted from any thread, the view is only called on the event thread.
+ */
+class ViewUpdates {
+
+    /**
+     * the shortest time between two updates of the view, about one display refresh
+     */
+    static final int FRAME_MILLIS = 16;
+
+    private final GameController.ViewDelegate view;
+    private final Timer frame;
+    private long lastFlush;
+    private boolean pending;
+
+    private List<Move> moves = new ArrayList<>();
+    private String turn;
+    private double time = -1;
+    private boolean scoreChanged;
+    private int whiteScore;
+    private int blackScore;
+    private String winner;
+    private boolean cancelled;
+
+    /**
+     * @param view where the updates are sent
+     */
+    ViewUpdates(GameController.ViewDelegate view) {
+        this.view = view;
+        frame = new Timer(FRAME_MILLIS, e -> flush());
+        frame.setRepeats(false);
+    }
+
+    synchronized void move(int row, int col, int clr) {
+        moves.add(new Move(row, col, clr));
+        schedule();
+    }
+
+    synchronized void turn(String clr) {
+        turn = clr;
+        schedule();
+    }
+
+    synchronized void time(double ms) {
+        time = ms;
+        schedule();
+    }
+
+    synchronized void score(int white, int black) {
+        whiteScore = white;
+        blackScore = black;
+        scoreChanged = true;
+        schedule();
+    }
+
+    synchronized void winner(String name) {
+        winner = name;
+        schedule();
+    }
+
+    /**
+     * Drop everything still waiting and ignore later updates, for a game the view no longer shows
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        moves.clear();
+        frame.stop();
+    }
+
+    /**
+     * Arrange a flush for the first update since the last one: straight away through
+     * invokeLater when a frame has already passed, otherwise when the frame timer fires
+     */
+    private void schedule() {
+        if (cancelled || pending) {
+            return;
+        }
+        pending = true;
+        long wait = lastFlush + FRAME_MILLIS - System.currentTimeMillis();
+        if (wait <= 0) {
+            SwingUtilities.invokeLater(this::flush);
+        } else {
+            frame.setInitialDelay((int) wait);
+            frame.restart();
+        }
+    }
+
+    /**
+     * Hand everything waiting to the view, on the event thread
+     */
+    void flush() {
+        List<Move> played;
+        String nextTurn;
+        double elapsed;
+        boolean updateScore;
+        int white;
+        int black;
+        String won;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            pending = false;
+            lastFlush = System.currentTimeMillis();
+            played = moves;
+            moves = new ArrayList<>();
+            nextTurn = turn;
+            turn = null;
+            elapsed = time;
+            time = -1;
+            updateScore = scoreChanged;
+            scoreChanged = false;
+            white = whiteScore;
+            black = blackScore;
+            won = winner;
+            winner = null;
+        }
+        if (!played.isEmpty()) {
+            view.applyMoves(played);
+        }
+        if (nextTurn != null) {
+            view.displayTurn(nextTurn);
+        }
+        if (elapsed >= 0) {
+            view.setTime(elapsed);
+        }
+        if (updateScore) {
+            view.setScore(white, black);
+        }
+        if (won != null) {
+            view.setWinner(won);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package islands.record;
+
+import islands.backend.GameModel;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Results, game lengths and final island counts of archived games, per board size.
+ * Each thread fills its own stats and they are merged at the end.
+ */
+public class ArchiveStats {
+
+    private final Map<Integer, SizeStats> bySize = new TreeMap<>();
+
+    /**
+     * The counts for one board size
+     */
+    private static class SizeStats {
+        long games;
+        long totalMoves;
+        long whiteWins;
+        long blackWins;
+        long ties;
+        long decided;
+        long firstMoverWins;
+        long[] islands = new long[16];
+
+        void count(int islandCount) {
+            if (islandCount >= islands.length) {
+                islands = Arrays.copyOf(islands, Math.max(islandCount + 1, islands.length * 2));
+            }
+            islands[islandCount]++;
+        }
+
+        void merge(SizeStats other) {
+            games += other.games;
+            totalMoves += other.totalMoves;
+            whiteWins += other.whiteWins;
+            blackWins += other.blackWins;
+            ties += other.ties;
+            decided += other.decided;
+            firstMoverWins += other.firstMoverWins;
+            if (other.islands.length > islands.length) {
+                islands = Arrays.copyOf(islands, other.islands.length);
+            }
+            for (int i = 0; i < other.islands.length; i++) {
+                islands[i] += other.islands[i];
+            }
+        }
+    }
+
+    /**
+     * Count one game
+     * @param record the game
+     * @param position its final position
+     */
+    void record(GameRecord record, GameModel position) {
+        SizeStats stats = bySize.computeIfAbsent(record.getSize(), size -> new SizeStats());
+        stats.games++;
+        stats.totalMoves += record.getMoveCount();
+        GameRecord.Result result = record.getResult();
+        if (result == GameRecord.Result.WHITE) {
+            stats.whiteWins++;
+        } else if (result == GameRecord.Result.BLACK) {
+            stats.blackWins++;
+        } else if (result == GameRecord.Result.TIE) {
+            stats.ties++;
+        }
+        if ((result == GameRecord.Result.WHITE || result == GameRecord.Result.BLACK) && record.getMoveCount() > 0) {
+            stats.decided++;
+            if ((result == GameRecord.Result.WHITE) == (record.firstMoveColor() == GameModel.WHITE)) {
+                stats.firstMoverWins++;
+            }
+        }
+        stats.count(position.whiteScore());
+        stats.count(position.blackScore());
+    }
+
+    /**
+     * Add another thread's games to these stats
+     * @param other the stats to fold in
+     * @return these stats
+     */
+    ArchiveStats merge(ArchiveStats other) {
+        other.bySize.forEach((size, stats) -> bySize.computeIfAbsent(size, s -> new SizeStats()).merge(stats));
+        return this;
+    }
+
+    /**
+     * The board sizes seen, smallest first
+     * @return the sizes
+     */
+    public Set<Integer> sizes() {
+        return bySize.keySet();
+    }
+
+    public long getGames() {
+        return bySize.values().stream().mapToLong(stats -> stats.games).sum();
+    }
+
+    public long getGames(int size) {
+        SizeStats stats = bySize.get(size);
+        return stats == null ? 0 : stats.games;
+    }
+
+    public long getWhiteWins(int size) {
+        SizeStats stats = bySize.get(size);
+        return stats == null ? 0 : stats.whiteWins;
+    }
+
+    public long getBlackWins(int size) {
+        SizeStats stats = bySize.get(size);
+        return stats == null ? 0 : stats.blackWins;
+    }
+
+    public long getTies(int size) {
+        SizeStats stats = bySize.get(size);
+        return stats == null ? 0 : stats.ties;
+    }
+
+    /**
+     * The share of won games, of every size, that the player who moved first won
+     * @return between 0 and 1, 0.5 means no first move advantage
+     */
+    public double firstMoveWinRate() {
+        long decided = 0;
+        long firstMoverWins = 0;
+        for (SizeStats stats : bySize.values()) {
+            decided += stats.decided;
+            firstMoverWins += stats.firstMoverWins;
+        }
+        return decided == 0 ? 0 : (double) firstMoverWins / decided;
+    }
+
+    /**
+     * The share of won games on one board size that the player who moved first won
+     * @param size the board size
+     * @return between 0 and 1
+     */
+    public double firstMoveWinRate(int size) {
+        SizeStats stats = bySize.get(size);
+        return stats == null || stats.decided == 0 ? 0 : (double) stats.firstMoverWins / stats.decided;
+    }
+
+    /**
+     * The mean number of moves in a game on one board size
+     * @param size the board size
+     * @return the average game length
+     */
+    public double meanMoves(int size) {
+        SizeStats stats = bySize.get(size);
+        return stats == null || stats.games == 0 ? 0 : (double) stats.totalMoves / stats.games;
+    }
+
+    /**
+     * How often a player finished with a given number of islands, both colours counted
+     * @param size the board size
+     * @param islands the final island count
+     * @return the number of final positions
+     */
+    public long islandCount(int size, int islands) {
+        SizeStats stats = bySize.get(size);
+        return stats == null || islands < 0 || islands >= stats.islands.length ? 0 : stats.islands[islands];
+    }
+
+    /**
+     * The mean final island count of a player on one board size
+     * @param size the board size
+     * @return the average islands per player
+     */
+    public double meanIslands(int size) {
+        SizeStats stats = bySize.get(size);
+        if (stats == null || stats.games == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < stats.islands.length; i++) {
+            total += i * stats.islands[i];
+        }
+        return (double) total / (2 * stats.games);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(String.format("%d games, first mover won %.1f%% of decided games%n",
+                getGames(), 100 * firstMoveWinRate()));
+        out.append(String.format("%6s %10s %8s %7s %7s %6s %8s %8s%n",
+                "size", "games", "moves", "white", "black", "tie", "first", "islands"));
+        bySize.forEach((size, stats) -> out.append(String.format("%6d %10d %8.1f %6.1f%% %6.1f%% %5.1f%% %7.1f%% %8.2f%n",
+                size, stats.games, meanMoves(size), percent(stats.whiteWins, stats.games),
+                percent(stats.blackWins, stats.games), percent(stats.ties, stats.games),
+                100 * firstMoveWinRate(size), meanIslands(size))));
+        return out.toString();
+    }
+
+    private static double percent(long count, long games) {
+        return games == 0 ? 0 : 100.0 * count / games;
+    }
+}
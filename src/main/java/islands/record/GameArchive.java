@@ -0,0 +1,279 @@
+package islands.record;
+
+import islands.backend.GameModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the games of an archive written by RecordWriter without loading it into memory.
+ * The first stream steps through the game lengths once to cut the file into segments of about
+ * SEGMENT_BYTES; streams then split along segments, so a parallel stream reads and replays
+ * different parts of the file on different cores. Games are read lazily from memory mapped
+ * windows as the stream pulls them, see RecordReader.
+ */
+public class GameArchive implements AutoCloseable {
+
+    static final long SEGMENT_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private long[] segmentStarts;
+    private long[] segmentGames;
+
+    /**
+     * Open an archive for reading
+     * @param file the archive
+     * @throws IOException if the file can't be read or isn't an archive
+     */
+    public GameArchive(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            RecordReader.checkHeader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find where each segment starts and how many games it holds, once
+     */
+    private synchronized void indexSegments() throws IOException {
+        if (segmentStarts != null) {
+            return;
+        }
+        long[] starts = new long[16];
+        long[] games = new long[16];
+        int count = 0;
+        RecordReader reader = new RecordReader(channel, RecordWriter.HEADER_BYTES, channel.size());
+        long segmentStart = reader.position();
+        long inSegment = 0;
+        while (reader.skip()) {
+            inSegment++;
+            if (reader.position() - segmentStart >= SEGMENT_BYTES) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    games = Arrays.copyOf(games, count * 2);
+                }
+                starts[count] = segmentStart;
+                games[count++] = inSegment;
+                segmentStart = reader.position();
+                inSegment = 0;
+            }
+        }
+        if (inSegment > 0 || count == 0) {
+            starts = Arrays.copyOf(starts, count + 1);
+            games = Arrays.copyOf(games, count + 1);
+            starts[count] = segmentStart;
+            games[count++] = inSegment;
+        }
+        segmentStarts = Arrays.copyOf(starts, count + 1);
+        segmentStarts[count] = reader.position();
+        segmentGames = Arrays.copyOf(games, count);
+    }
+
+    /**
+     * Every game in the archive, in file order. Call parallel() on it to read segments concurrently.
+     * @return a lazy stream of the games
+     * @throws UncheckedIOException if the archive can't be read or a game is malformed
+     */
+    public Stream<GameRecord> records() {
+        return StreamSupport.stream(segments(), false);
+    }
+
+    /**
+     * Every segment of the archive, indexing them the first time
+     */
+    private Segments segments() {
+        try {
+            indexSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Segments(0, segmentGames.length);
+    }
+
+    /**
+     * Replay every game and look at its final position. Each split of the stream replays into
+     * its own model of the game's size, reused from game to game, so the analysis must take what
+     * it needs from the model and not keep it.
+     * @param analysis what to take from a game and its final position
+     * @param <T> the type of the results
+     * @return a lazy stream of the results, in file order
+     */
+    public <T> Stream<T> replay(BiFunction<GameRecord, GameModel, T> analysis) {
+        return StreamSupport.stream(new Replays<>(segments(), analysis), false);
+    }
+
+    /**
+     * Results, lengths and island counts of every game, per board size, replayed in parallel
+     * @return the statistics
+     */
+    public ArchiveStats stats() {
+        return records().parallel().collect(Tally::new, Tally::record, Tally::merge).stats;
+    }
+
+    /**
+     * The number of games in the archive
+     * @return the count
+     */
+    public long count() {
+        return records().count();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Print the statistics of one or more archives
+     * @param args the archive files
+     * @throws IOException if an archive can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        for (String file : args) {
+            try (GameArchive archive = new GameArchive(Path.of(file))) {
+                long start = System.nanoTime();
+                ArchiveStats stats = archive.stats();
+                System.out.printf("%s in %.1f ms%n%s", file, (System.nanoTime() - start) / 1e6, stats);
+            }
+        }
+    }
+
+    /**
+     * Reusable models, one per board size, so replaying doesn't allocate boards. They belong to
+     * one split of a stream, so only one thread uses them at a time, and go when it is done.
+     */
+    private static class Models {
+        private final Map<Integer, GameModel> bySize = new HashMap<>();
+
+        GameModel replay(GameRecord record) {
+            return record.replay(bySize.computeIfAbsent(record.getSize(), GameModel::new));
+        }
+    }
+
+    /**
+     * The statistics of the games one task of stats has replayed, with the models it replays into
+     */
+    private static class Tally {
+        private final ArchiveStats stats = new ArchiveStats();
+        private final Models models = new Models();
+
+        void record(GameRecord record) {
+            stats.record(record, models.replay(record));
+        }
+
+        void merge(Tally other) {
+            stats.merge(other.stats);
+        }
+    }
+
+    /**
+     * The results of an analysis of the games of some segments, splitting as they do
+     */
+    private static class Replays<T> implements Spliterator<T> {
+
+        private final Spliterator<GameRecord> records;
+        private final BiFunction<GameRecord, GameModel, T> analysis;
+        private final Models models = new Models();
+
+        Replays(Spliterator<GameRecord> records, BiFunction<GameRecord, GameModel, T> analysis) {
+            this.records = records;
+            this.analysis = analysis;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            return records.tryAdvance(record -> action.accept(analysis.apply(record, models.replay(record))));
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Spliterator<GameRecord> split = records.trySplit();
+            return split == null ? null : new Replays<>(split, analysis);
+        }
+
+        @Override
+        public long estimateSize() {
+            return records.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return records.characteristics() & (ORDERED | SIZED | SUBSIZED);
+        }
+    }
+
+    /**
+     * The games of segments from..to, splitting in half along segment boundaries
+     */
+    private class Segments implements Spliterator<GameRecord> {
+
+        private int from;
+        private final int to;
+        private RecordReader reader;
+
+        Segments(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super GameRecord> action) {
+            try {
+                while (from < to) {
+                    if (reader == null) {
+                        reader = new RecordReader(channel, segmentStarts[from], segmentStarts[from + 1]);
+                    }
+                    GameRecord record = reader.read();
+                    if (record != null) {
+                        action.accept(record);
+                        return true;
+                    }
+                    reader = null;
+                    from++;
+                }
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Spliterator<GameRecord> trySplit() {
+            if (reader != null || to - from < 2) {
+                return null;
+            }
+            int mid = (from + to) >>> 1;
+            Segments first = new Segments(from, mid);
+            from = mid;
+            return first;
+        }
+
+        @Override
+        public long estimateSize() {
+            long games = 0;
+            for (int segment = from; segment < to; segment++) {
+                games += segmentGames[segment];
+            }
+            return games;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE | (reader == null ? SIZED | SUBSIZED : 0);
+        }
+    }
+}
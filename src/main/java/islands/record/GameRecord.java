@@ -0,0 +1,138 @@
+package islands.record;
+
+import islands.backend.GameModel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One game from an archive: board size, seed, result and the moves in the order played.
+ * The moves stay in their encoded form, a view of the archive's bytes, and are decoded
+ * only while replaying, see RecordWriter for the format.
+ */
+public final class GameRecord {
+
+    /**
+     * How a recorded game ended, decided by score as GameController does
+     */
+    public enum Result {
+        WHITE, BLACK, TIE, UNFINISHED;
+
+        /**
+         * The result of a game as it stands
+         * @param model the game
+         * @return UNFINISHED if no edge to edge island joined yet, else the colour with more islands
+         */
+        public static Result of(GameModel model) {
+            if (!model.isGameOver()) {
+                return UNFINISHED;
+            }
+            if (model.whiteScore() > model.blackScore()) {
+                return WHITE;
+            }
+            return model.blackScore() > model.whiteScore() ? BLACK : TIE;
+        }
+    }
+
+    private final int size;
+    private final long seed;
+    private final Result result;
+    private final int moveCount;
+    private final ByteBuffer moves;
+
+    GameRecord(int size, long seed, Result result, int moveCount, ByteBuffer moves) {
+        this.size = size;
+        this.seed = seed;
+        this.result = result;
+        this.moveCount = moveCount;
+        this.moves = moves;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * The colour that moved first
+     * @return GameModel.WHITE or BLACK
+     * @throws IllegalStateException if the game has no moves
+     */
+    public boolean firstMoveColor() {
+        if (moveCount == 0) {
+            throw new IllegalStateException("No moves");
+        }
+        return (Varint.read(moves.duplicate()) & 1) != 0;
+    }
+
+    /**
+     * The encoded moves, a read only view positioned at the first one
+     */
+    ByteBuffer encodedMoves() {
+        return moves.duplicate();
+    }
+
+    /**
+     * Play the game again from an empty board
+     * @param model a model of the record's size, reset first
+     * @return model, holding the final position
+     * @throws IllegalArgumentException if the model is of another size or a move can't be played
+     */
+    public GameModel replay(GameModel model) {
+        if (model.size != size) {
+            throw new IllegalArgumentException("Record is for size " + size + ", model is " + model.size);
+        }
+        model.reset();
+        ByteBuffer in = moves.duplicate();
+        int index = 0;
+        for (int i = 0; i < moveCount; i++) {
+            long move = Varint.read(in);
+            index += Varint.unzigzag(move >>> 1);
+            model.makePlay(index / size, index % size, (move & 1) != 0);
+        }
+        return model;
+    }
+
+    /**
+     * The moves decoded into arrays
+     * @return the cells played, row * size + col
+     */
+    public int[] moves() {
+        int[] indices = new int[moveCount];
+        ByteBuffer in = moves.duplicate();
+        int index = 0;
+        for (int i = 0; i < moveCount; i++) {
+            index += Varint.unzigzag(Varint.read(in) >>> 1);
+            indices[i] = index;
+        }
+        return indices;
+    }
+
+    /**
+     * The colours of the moves, parallel to moves()
+     * @return GameModel.WHITE or BLACK per move
+     */
+    public boolean[] colors() {
+        boolean[] colors = new boolean[moveCount];
+        ByteBuffer in = moves.duplicate();
+        for (int i = 0; i < moveCount; i++) {
+            colors[i] = (Varint.read(in) & 1) != 0;
+        }
+        return colors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%dx%d game, seed %d, %d moves, %s", size, size, seed, moveCount, result);
+    }
+}
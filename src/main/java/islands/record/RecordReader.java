@@ -0,0 +1,171 @@
+package islands.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the games of an archive written by RecordWriter, one after another.
+ * The file is memory mapped a large window at a time and every GameRecord handed out is a
+ * view of the mapped bytes, so reading copies nothing and replaying decodes straight from
+ * the page cache. Records stay valid after the reader moves on or is closed.
+ */
+public class RecordReader implements AutoCloseable {
+
+    private static final long MAX_WINDOW = 1L << 30;
+    private static final GameRecord.Result[] RESULTS = GameRecord.Result.values();
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private long position;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * Open an archive to read from its first game
+     * @param file the archive
+     * @throws IOException if the file can't be read or isn't an archive
+     */
+    public RecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        ownsChannel = true;
+        try {
+            checkHeader(channel);
+            end = channel.size();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        position = RecordWriter.HEADER_BYTES;
+    }
+
+    /**
+     * Read the games between two offsets of an open archive, the caller keeps the channel
+     * @param channel the archive
+     * @param start the offset of the first game's length
+     * @param end the offset just past the last game
+     */
+    RecordReader(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        ownsChannel = false;
+        this.end = end;
+        position = start;
+    }
+
+    /**
+     * Check the magic bytes and version at the start of an archive
+     * @param channel the archive
+     * @throws IOException if they don't match
+     */
+    static void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RecordWriter.HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading until the header is full or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != RecordWriter.MAGIC) {
+            throw new IOException("Not a game archive");
+        }
+        if (header.get(4) != RecordWriter.VERSION) {
+            throw new IOException("Unsupported archive version " + header.get(4));
+        }
+    }
+
+    /**
+     * The offset of the next game
+     * @return a byte offset into the file
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * The next game
+     * @return the game, or null after the last one
+     * @throws IOException if the archive can't be read or a game is cut short or malformed
+     */
+    public GameRecord read() throws IOException {
+        if (position >= end) {
+            return null;
+        }
+        ByteBuffer in = window(position, Math.min(Varint.MAX_BYTES, end - position));
+        int start = in.position();
+        long length;
+        try {
+            length = Varint.read(in);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed game length at " + position, e);
+        }
+        int lengthBytes = in.position() - start;
+        if (length <= 0 || length > MAX_WINDOW) {
+            throw new IOException("Malformed game length at " + position);
+        }
+        in = window(position, lengthBytes + length);
+        ByteBuffer body = in.slice(in.position() + lengthBytes, (int) length);
+        GameRecord record;
+        try {
+            int size = (int) Varint.read(body);
+            long seed = body.getLong();
+            int result = body.get();
+            int moveCount = (int) Varint.read(body);
+            if (size <= 0 || result < 0 || result >= RESULTS.length || moveCount < 0) {
+                throw new IOException("Malformed game at " + position);
+            }
+            record = new GameRecord(size, seed, RESULTS[result], moveCount, body.slice().asReadOnlyBuffer());
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed game at " + position, e);
+        }
+        position += lengthBytes + length;
+        return record;
+    }
+
+    /**
+     * Step over the next game without reading more than its length
+     * @return false after the last game
+     * @throws IOException if the archive can't be read or the game is cut short
+     */
+    boolean skip() throws IOException {
+        if (position >= end) {
+            return false;
+        }
+        ByteBuffer in = window(position, Math.min(Varint.MAX_BYTES, end - position));
+        int start = in.position();
+        long length;
+        try {
+            length = Varint.read(in);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed game length at " + position, e);
+        }
+        long next = position + in.position() - start + length;
+        if (length <= 0 || length > MAX_WINDOW || next > end) {
+            throw new IOException("Malformed game length at " + position);
+        }
+        position = next;
+        return true;
+    }
+
+    /**
+     * The mapped bytes from offset on, positioned at offset and holding at least bytes of them,
+     * mapping a new window when the current one doesn't
+     */
+    private ByteBuffer window(long offset, long bytes) throws IOException {
+        if (offset + bytes > end) {
+            throw new IOException("Game cut short at " + offset);
+        }
+        if (window == null || offset < windowStart || offset + bytes > windowStart + window.capacity()) {
+            windowStart = offset;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(end - offset, Math.max(bytes, MAX_WINDOW)));
+        }
+        return window.position((int) (offset - windowStart));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
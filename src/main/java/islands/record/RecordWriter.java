@@ -0,0 +1,155 @@
+package islands.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends games to an archive file through a FileChannel.
+ * <p>
+ * The file starts with the magic bytes "IHEX" and a format version byte. Each game follows as
+ * a varint byte length and then its body: varint board size, the seed as 8 big endian bytes,
+ * one result byte, varint move count and then one varint per move. A move stores the change
+ * from the previous move's cell (the first from cell 0), zigzag encoded, shifted up one bit
+ * with the colour in the low bit (1 for white). Cells played one after another are usually
+ * close, so most moves of a small board take a single byte.
+ * <p>
+ * Games are gathered in a buffer and written when it fills and on close. A writer is not
+ * thread safe; give each thread its own file or hand it games through a queue.
+ */
+public class RecordWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x49484558;
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 5;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private ByteBuffer body = ByteBuffer.allocate(BUFFER_BYTES);
+    private long games;
+
+    /**
+     * Open an archive for appending, creating it with a header if it doesn't exist or is empty
+     * @param file the archive
+     * @throws IOException if the file can't be opened or isn't an archive
+     */
+    public RecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                buffer.putInt(MAGIC).put(VERSION);
+            } else {
+                RecordReader.checkHeader(channel);
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add a game
+     * @param size the square size of the board
+     * @param seed the seed the game was played with
+     * @param result how it ended
+     * @param moves the cells played, row * size + col
+     * @param colors the colour of each move, GameModel.WHITE or BLACK
+     * @param count how many of the moves to write
+     * @throws IOException if the archive can't be written
+     * @throws IllegalArgumentException if a move is off the board
+     */
+    public void append(int size, long seed, GameRecord.Result result, int[] moves, boolean[] colors, int count)
+            throws IOException {
+        ensureBody(count * 5L);
+        body.clear();
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int index = moves[i];
+            if (index < 0 || index >= size * size) {
+                throw new IllegalArgumentException("Move " + index + " is off a " + size + "x" + size + " board");
+            }
+            Varint.write(body, Varint.zigzag(index - previous) << 1 | (colors[i] ? 1 : 0));
+            previous = index;
+        }
+        body.flip();
+        append(size, seed, result, count, body);
+    }
+
+    /**
+     * Copy a game from another archive without decoding its moves
+     * @param record the game
+     * @throws IOException if the archive can't be written
+     */
+    public void append(GameRecord record) throws IOException {
+        append(record.getSize(), record.getSeed(), record.getResult(), record.getMoveCount(), record.encodedMoves());
+    }
+
+    private void append(int size, long seed, GameRecord.Result result, int count, ByteBuffer moves) throws IOException {
+        int length = varintLength(size) + Long.BYTES + 1 + varintLength(count) + moves.remaining();
+        if (buffer.remaining() < Varint.MAX_BYTES + length) {
+            flush();
+            if (buffer.capacity() < Varint.MAX_BYTES + length) {
+                buffer = ByteBuffer.allocateDirect(Varint.MAX_BYTES + length);
+            }
+        }
+        Varint.write(buffer, length);
+        Varint.write(buffer, size);
+        buffer.putLong(seed);
+        buffer.put((byte) result.ordinal());
+        Varint.write(buffer, count);
+        buffer.put(moves);
+        games++;
+    }
+
+    private void ensureBody(long bytes) {
+        if (bytes > Integer.MAX_VALUE - Varint.MAX_BYTES) {
+            throw new IllegalArgumentException("Too many moves");
+        }
+        if (body.capacity() < bytes) {
+            body = ByteBuffer.allocate((int) bytes);
+        }
+    }
+
+    private static int varintLength(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * The number of games appended through this writer
+     * @return the count
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Write out every buffered game
+     * @throws IOException if the archive can't be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package islands.record;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 varints, seven bits a byte with the high bit set on all but the last,
+ * and zigzag mapping so small negative numbers stay short
+ */
+final class Varint {
+
+    static final int MAX_BYTES = 10;
+
+    private Varint() {
+    }
+
+    static void write(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * @throws IllegalStateException if the varint runs past ten bytes
+     */
+    static long read(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static long zigzag(int value) {
+        return Integer.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+
+    static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+}
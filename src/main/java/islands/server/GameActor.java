@@ -0,0 +1,106 @@
+package islands.server;
+
+import islands.backend.GameModel;
+import islands.metrics.MoveMetrics;
+import islands.middle.SpectatorFeed;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * One hosted game. Every request runs on the game's mailbox, so the GameModel is only
+ * used by one thread at a time however many connections play on it.
+ */
+class GameActor {
+
+    private final long id;
+    private final GameModel model;
+    private final MoveMetrics metrics;
+    private final Mailbox mailbox;
+    private boolean turn = GameModel.WHITE;
+    private SpectatorFeed feed;
+
+    /**
+     * @param id the game's number
+     * @param size the square size of the board
+     * @param metrics where to record the moves
+     * @param pool the threads the game's requests run on
+     */
+    GameActor(long id, int size, MoveMetrics metrics, Executor pool) {
+        this.id = id;
+        this.model = new GameModel(size);
+        this.metrics = metrics;
+        this.mailbox = new Mailbox(pool);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Play the side to move at row, col
+     * @return "OK white black", "OVER winner white black" or "ERR reason"
+     */
+    CompletableFuture<String> play(int row, int col) {
+        return ask(() -> {
+            if (model.isGameOver()) {
+                return "ERR game over";
+            }
+            try {
+                boolean over = metrics.makePlay(model, row, col, turn);
+                turn = !turn;
+                if (over) {
+                    return "OVER " + winner() + " " + model.whiteScore() + " " + model.blackScore();
+                }
+                return "OK " + model.whiteScore() + " " + model.blackScore();
+            } catch (IllegalArgumentException e) {
+                return "ERR " + e.getMessage();
+            }
+        });
+    }
+
+    /**
+     * @return "STATE turn moves white black status"
+     */
+    CompletableFuture<String> state() {
+        return ask(() -> "STATE " + (turn == GameModel.WHITE ? "WHITE" : "BLACK") + " " + model.moveCount()
+                + " " + model.whiteScore() + " " + model.blackScore() + " " + (model.isGameOver() ? "OVER" : "PLAYING"));
+    }
+
+    /**
+     * Send the game to a spectator, starting the game's feed for the first one
+     * @param channel the spectator's connection, which the feed owns from now on
+     * @param scheduler the thread feeds write on
+     * @throws IOException if the channel can't be made non-blocking or the feed can't be started
+     */
+    synchronized void watch(SocketChannel channel, ScheduledExecutorService scheduler) throws IOException {
+        if (feed == null) {
+            feed = new SpectatorFeed(model, mailbox, scheduler);
+        }
+        feed.subscribe(channel);
+    }
+
+    /**
+     * Hang up on the game's spectators, if it has any
+     */
+    synchronized void close() {
+        if (feed != null) {
+            feed.close();
+        }
+    }
+
+    private String winner() {
+        if (model.whiteScore() > model.blackScore()) {
+            return "WHITE";
+        }
+        return model.blackScore() > model.whiteScore() ? "BLACK" : "TIE";
+    }
+
+    private CompletableFuture<String> ask(Supplier<String> request) {
+        return CompletableFuture.supplyAsync(request, mailbox);
+    }
+}
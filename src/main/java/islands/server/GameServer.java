@@ -0,0 +1,277 @@
+package islands.server;
+
+import islands.metrics.MetricsReporter;
+import islands.metrics.MoveMetrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many games at once for clients on this machine, over a line based protocol.
+ * Every request is one line and gets one line back:
+ * <pre>
+ * NEW size              GAME id
+ * PLAY id row col       OK whiteScore blackScore, or OVER winner whiteScore blackScore
+ * STATE id              STATE WHITE|BLACK moves whiteScore blackScore PLAYING|OVER
+ * CLOSE id              CLOSED id
+ * WATCH id              WATCHING id, then the connection carries the game's SpectatorFeed
+ * QUIT                  BYE, and the connection closes
+ * </pre>
+ * PLAY plays the side to move, white first. A request that can't be carried out gets ERR and a reason.
+ * After WATCH the connection only carries the feed, so a client must wait for WATCHING before it
+ * sends anything else: nothing sent after WATCH is read as a request, and the feed throws it away.
+ * The feed ends when the client hangs up.
+ * Each connection has a thread that blocks on its socket, and each game has a mailbox on a shared
+ * pool, so any number of connections can play the same game without locking it. A connection that
+ * watches a game hands its socket to the game's feed and gives its thread back; every feed writes
+ * from one shared thread without blocking, so spectators cost the players nothing but the events.
+ */
+public class GameServer implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(GameServer.class.getName());
+
+    static final int MAX_SIZE = 1024;
+
+    private final ServerSocketChannel serverSocket;
+    private final ExecutorService connections;
+    private final ForkJoinPool games;
+    private final ScheduledExecutorService feeds;
+    private final Map<Long, GameActor> actors = new ConcurrentHashMap<>();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final MoveMetrics metrics = new MoveMetrics();
+
+    /**
+     * A server listening on the loopback interface, call start() to accept connections
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port can't be bound
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        connections = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "islands-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        games = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        feeds = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "islands-feeds");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Accept connections on a thread of their own
+     * @return this server
+     */
+    public GameServer start() {
+        Thread acceptor = new Thread(this::accept, "islands-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * The port the server listens on
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.socket().getLocalPort();
+    }
+
+    /**
+     * The number of games open, started and not yet closed
+     * @return the game count
+     */
+    public int gameCount() {
+        return actors.size();
+    }
+
+    /**
+     * The moves played on every game
+     * @return the server's metrics
+     */
+    public MoveMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void accept() {
+        while (serverSocket.isOpen()) {
+            try {
+                SocketChannel channel = serverSocket.accept();
+                channel.socket().setTcpNoDelay(true);
+                sockets.add(channel.socket());
+                connections.execute(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                // closed
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "accept failed", e);
+            }
+        }
+    }
+
+    /**
+     * Answer one connection's requests until it quits, hangs up or starts watching a game
+     */
+    private void serve(SocketChannel channel) {
+        Socket socket = channel.socket();
+        boolean watching = false;
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line.trim());
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+                if (reply.equals("BYE")) {
+                    break;
+                }
+                if (reply.startsWith("WATCHING ")) {
+                    watching = watch(reply.substring("WATCHING ".length()), channel);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "connection dropped", e);
+        } finally {
+            sockets.remove(socket);
+            if (!watching) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "close failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand a connection to a game's feed
+     * @return false if the game was closed in the meantime
+     */
+    private boolean watch(String id, SocketChannel channel) throws IOException {
+        GameActor actor = actors.get(Long.parseLong(id));
+        if (actor == null) {
+            return false;
+        }
+        actor.watch(channel, feeds);
+        return true;
+    }
+
+    /**
+     * Carry out one request
+     * @param request the request line
+     * @return the reply line
+     */
+    String handle(String request) {
+        String[] words = request.split("\\s+");
+        try {
+            switch (words[0]) {
+                case "NEW":
+                    return newGame(Integer.parseInt(words[1]));
+                case "PLAY":
+                    return actor(words[1]).play(Integer.parseInt(words[2]), Integer.parseInt(words[3])).join();
+                case "STATE":
+                    return actor(words[1]).state().join();
+                case "CLOSE":
+                    GameActor closed = actors.remove(Long.parseLong(words[1]));
+                    if (closed == null) {
+                        return "ERR no game " + words[1];
+                    }
+                    closed.close();
+                    return "CLOSED " + closed.getId();
+                case "WATCH":
+                    return "WATCHING " + actor(words[1]).getId();
+                case "QUIT":
+                    return "BYE";
+                default:
+                    return "ERR unknown request " + words[0];
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return "ERR missing argument";
+        } catch (NumberFormatException e) {
+            return "ERR not a number";
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private String newGame(int size) {
+        if (size <= 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid board size");
+        }
+        long id = nextId.getAndIncrement();
+        actors.put(id, new GameActor(id, size, metrics, games));
+        return "GAME " + id;
+    }
+
+    private GameActor actor(String id) {
+        GameActor actor = actors.get(Long.parseLong(id));
+        if (actor == null) {
+            throw new IllegalArgumentException("no game " + id);
+        }
+        return actor;
+    }
+
+    /**
+     * Stop accepting, hang up on every connection and drop every game
+     * @throws IOException if the listening socket can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        for (GameActor actor : actors.values()) {
+            actor.close();
+        }
+        feeds.shutdownNow();
+        games.shutdownNow();
+        actors.clear();
+    }
+
+    /**
+     * Run a server until the process is killed, printing its move metrics every ten seconds
+     * @param args an optional port, 7777 if missing
+     * @throws IOException if the port can't be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        GameServer server = new GameServer(port);
+        server.getMetrics().register("server");
+        LOGGER.info(() -> "listening on localhost:" + server.getPort());
+        MetricsReporter reporter = new MetricsReporter(server.getMetrics(), 10, TimeUnit.SECONDS, System.out);
+        try {
+            server.accept();
+        } finally {
+            reporter.close();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package islands.server;
+
+import islands.backend.GameModel;
+import islands.metrics.Histogram;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays random games against a GameServer on this machine from many connections at once
+ * and measures the server's throughput and the round trip time of each move
+ */
+public class LoadGenerator {
+
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+
+    private final int port;
+    private final int size;
+
+    /**
+     * @param port the port of a server on the loopback interface
+     * @param size the square size of the boards to play on
+     */
+    public LoadGenerator(int port, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid board size");
+        }
+        this.port = port;
+        this.size = size;
+    }
+
+    /**
+     * Open connections that each play games one after another to the end, then close
+     * @param connections the number of concurrent connections
+     * @param gamesPerConnection the games each connection plays
+     * @param seed the seed the random moves are derived from
+     * @return what was played and how long the moves took
+     * @throws IOException if a connection fails or the server answers a move with an error
+     */
+    public LoadReport run(int connections, int gamesPerConnection, long seed) throws IOException {
+        Histogram latency = new Histogram();
+        AtomicLong moves = new AtomicLong();
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                SplittableRandom random = new SplittableRandom(seed + i * SEED_MIX);
+                running.add(clients.submit(() -> {
+                    moves.addAndGet(play(gamesPerConnection, random, latency));
+                    return null;
+                }));
+            }
+            for (Future<?> client : running) {
+                client.get();
+            }
+            return new LoadReport((long) connections * gamesPerConnection, moves.get(), System.nanoTime() - start, latency);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * One connection's games. A local model mirrors each game to pick the random moves.
+     * @return the number of moves played
+     */
+    private long play(int games, SplittableRandom random, Histogram latency) throws IOException {
+        long moves = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            GameModel model = new GameModel(size);
+            for (int game = 0; game < games; game++) {
+                String id = expect(request(in, out, "NEW " + size), "GAME")[1];
+                model.reset();
+                boolean clr = GameModel.WHITE;
+                boolean over = false;
+                while (!over) {
+                    int index = model.randomEmptyCell(random);
+                    long sent = System.nanoTime();
+                    String reply = request(in, out, "PLAY " + id + " " + index / size + " " + index % size);
+                    latency.record(System.nanoTime() - sent);
+                    over = model.makePlay(index / size, index % size, clr);
+                    clr = !clr;
+                    moves++;
+                    expect(reply, over ? "OVER" : "OK");
+                }
+                expect(request(in, out, "CLOSE " + id), "CLOSED");
+            }
+            request(in, out, "QUIT");
+        }
+        return moves;
+    }
+
+    private static String request(BufferedReader in, BufferedWriter out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("Server hung up");
+        }
+        return reply;
+    }
+
+    private static String[] expect(String reply, String word) throws IOException {
+        String[] words = reply.split(" ");
+        if (!words[0].equals(word)) {
+            throw new IOException("Expected " + word + " but got " + reply);
+        }
+        return words;
+    }
+
+    /**
+     * Load a server, starting one in this process if no port is given
+     * @param args connections, games per connection, board size and an optional port
+     * @throws IOException if the server can't be reached
+     */
+    public static void main(String[] args) throws IOException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 11;
+        if (args.length > 3) {
+            System.out.println(new LoadGenerator(Integer.parseInt(args[3]), size).run(connections, games, System.nanoTime()));
+            return;
+        }
+        try (GameServer server = new GameServer(0).start()) {
+            System.out.println(new LoadGenerator(server.getPort(), size).run(connections, games, System.nanoTime()));
+            System.out.println(server.getMetrics());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package islands.server;
+
+import islands.metrics.Histogram;
+
+/**
+ * What a load run against a GameServer achieved: throughput and the latency of each request
+ */
+public class LoadReport {
+
+    private final long games;
+    private final long moves;
+    private final long elapsedNanos;
+    private final Histogram latencyNanos;
+
+    LoadReport(long games, long moves, long elapsedNanos, Histogram latencyNanos) {
+        this.games = games;
+        this.moves = moves;
+        this.elapsedNanos = elapsedNanos;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * The round trip time of every PLAY request, from writing it to reading the reply
+     * @return the latencies in nanoseconds
+     */
+    public Histogram getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * Moves played per second of wall clock time, over all connections
+     * @return the throughput
+     */
+    public double movesPerSecond() {
+        return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games, %d moves in %.1f ms (%.0f moves/sec)%n"
+                        + "latency us: mean %.1f, p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+                games, moves, elapsedNanos / 1e6, movesPerSecond(),
+                latencyNanos.mean() / 1e3, latencyNanos.percentile(0.5) / 1e3, latencyNanos.percentile(0.99) / 1e3,
+                latencyNanos.percentile(0.999) / 1e3, latencyNanos.max() / 1e3);
+    }
+}
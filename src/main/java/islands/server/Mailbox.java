@@ -0,0 +1,57 @@
+package islands.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time in the order they were submitted, borrowing a thread of a shared
+ * pool only while it has work. Whatever a mailbox's tasks touch is only ever touched by one
+ * thread at a time, with each task seeing the effects of the ones before, so it needs no locks.
+ */
+class Mailbox implements Executor {
+
+    /**
+     * tasks to run before giving the thread back to the pool, so one busy game can't starve the rest
+     */
+    private static final int BATCH = 64;
+
+    private final Executor pool;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param pool the threads to run on
+     */
+    Mailbox(Executor pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            pool.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+        } finally {
+            scheduled.set(false);
+            schedule();
+        }
+    }
+}
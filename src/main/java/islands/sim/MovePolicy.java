@@ -0,0 +1,29 @@
+package islands.sim;
+
+import islands.backend.GameModel;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chooses the next move for one side of a headless game
+ */
+@FunctionalInterface
+public interface MovePolicy {
+
+    /**
+     * Pick an empty cell to play
+     * @param model the current position, which must not be changed
+     * @param clr the colour to move, GameModel.WHITE or GameModel.BLACK
+     * @param random the game's source of randomness
+     * @return the cell as row * size + col, or -1 if there is no legal move
+     */
+    int chooseMove(GameModel model, boolean clr, SplittableRandom random);
+
+    /**
+     * Play a uniformly random empty cell
+     * @return the random policy
+     */
+    static MovePolicy random() {
+        return (model, clr, random) -> model.randomEmptyCell(random);
+    }
+}
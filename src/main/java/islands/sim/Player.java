@@ -0,0 +1,102 @@
+package islands.sim;
+
+import islands.ai.AiPlayer;
+import islands.backend.GameModel;
+
+import java.util.SplittableRandom;
+
+/**
+ * A named strategy that can take part in a Tournament. Players are shared by every
+ * match they play, so chooseMove must be safe to call from several threads at once
+ * and should draw all its randomness from the game's random for matches to be repeatable.
+ */
+public interface Player extends MovePolicy {
+
+    /**
+     * The name the player is listed under in results
+     * @return the name
+     */
+    String name();
+
+    /**
+     * Name a move policy
+     * @param name the player's name
+     * @param policy how it chooses moves
+     * @return the player
+     */
+    static Player of(String name, MovePolicy policy) {
+        return new Player() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public int chooseMove(GameModel model, boolean clr, SplittableRandom random) {
+                return policy.chooseMove(model, clr, random);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * Play a uniformly random empty cell
+     * @return the random player
+     */
+    static Player random() {
+        return of("random", MovePolicy.random());
+    }
+
+    /**
+     * Look one move ahead: play the move that leaves the best island lead, taking a win that
+     * ends the game when there is one and avoiding a move that ends it in a loss.
+     * Equally good moves are chosen between at random.
+     * @return the greedy player
+     */
+    static Player greedy() {
+        return of("greedy", Player::greedyMove);
+    }
+
+    /**
+     * Monte Carlo tree search on the calling thread, see AiPlayer
+     * @param playouts the playouts per move
+     * @return the search player
+     */
+    static Player search(long playouts) {
+        AiPlayer ai = AiPlayer.withPlayoutBudget(playouts, 1, 0);
+        return of("search-" + playouts, (model, clr, random) -> ai.chooseMove(model, clr, random).getMove());
+    }
+
+    /**
+     * Try every empty cell with makePlay and take it back with undo, so the position
+     * ends as it started
+     */
+    private static int greedyMove(GameModel model, boolean clr, SplittableRandom random) {
+        int size = model.size;
+        int best = -1;
+        int bestValue = Integer.MIN_VALUE;
+        int ties = 0;
+        for (int cell = model.emptyCells().nextCell(0); cell >= 0; cell = model.emptyCells().nextCell(cell + 1)) {
+            boolean over = model.makePlay(cell / size, cell % size, clr);
+            int mine = clr == GameModel.WHITE ? model.whiteScore() : model.blackScore();
+            int theirs = clr == GameModel.WHITE ? model.blackScore() : model.whiteScore();
+            model.undo();
+            int value = mine - theirs;
+            if (over) {
+                value = mine > theirs ? Integer.MAX_VALUE : mine == theirs ? 0 : Integer.MIN_VALUE + 1;
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                best = cell;
+                ties = 1;
+            } else if (value == bestValue && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+}
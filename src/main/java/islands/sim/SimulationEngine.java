@@ -0,0 +1,177 @@
+package islands.sim;
+
+import islands.backend.GameModel;
+import islands.metrics.MetricsReporter;
+import islands.metrics.MoveMetrics;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays batches of games to completion on GameModel with no user interface,
+ * spreading the games over the cores of a ForkJoinPool
+ */
+public class SimulationEngine {
+
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+
+    private final int size;
+    private final MovePolicy white;
+    private final MovePolicy black;
+    private final ForkJoinPool pool;
+    private MoveMetrics metrics;
+
+    /**
+     * Random play against random play on the common pool
+     * @param size the square size of the board
+     */
+    public SimulationEngine(int size) {
+        this(size, MovePolicy.random(), MovePolicy.random(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * An engine with a policy for each side
+     * @param size the square size of the board
+     * @param white the policy for white, who moves first
+     * @param black the policy for black
+     * @param pool the pool the games are run on
+     */
+    public SimulationEngine(int size, MovePolicy white, MovePolicy black, ForkJoinPool pool) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid board size");
+        }
+        this.size = size;
+        this.white = white;
+        this.black = black;
+        this.pool = pool;
+    }
+
+    /**
+     * Measure every move the engine plays from now on, at some cost in speed
+     * @param metrics where to record the moves, null to stop measuring
+     */
+    public void setMetrics(MoveMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Play a number of games to completion
+     * @param games how many games to play
+     * @param seed the seed for the whole batch, game i always gets the same moves for a given seed
+     * @return the combined results
+     */
+    public SimulationReport run(int games, long seed) {
+        long start = System.nanoTime();
+        int batch = Math.max(1, games / (pool.getParallelism() * 8));
+        SimulationReport report = pool.invoke(new GameBatch(0, games, batch, seed));
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Play one game from the model's current position until it is over or the board is full
+     * @param model the game to play out
+     * @param white the policy for white
+     * @param black the policy for black
+     * @param clr the colour to move first
+     * @param random the game's source of randomness
+     * @return the number of moves played
+     */
+    public static int playOut(GameModel model, MovePolicy white, MovePolicy black, boolean clr, SplittableRandom random) {
+        return playOut(model, white, black, clr, random, null);
+    }
+
+    /**
+     * Play one game out as above, measuring every move
+     * @param model the game to play out
+     * @param white the policy for white
+     * @param black the policy for black
+     * @param clr the colour to move first
+     * @param random the game's source of randomness
+     * @param metrics where to record the moves, null to play unmeasured
+     * @return the number of moves played
+     */
+    public static int playOut(GameModel model, MovePolicy white, MovePolicy black, boolean clr, SplittableRandom random,
+                              MoveMetrics metrics) {
+        int moves = 0;
+        boolean gameOver = model.isGameOver();
+        while (!gameOver) {
+            int index = (clr == GameModel.WHITE ? white : black).chooseMove(model, clr, random);
+            if (index < 0) {
+                break;
+            }
+            int row = index / model.size;
+            int col = index % model.size;
+            gameOver = metrics == null ? model.makePlay(row, col, clr) : metrics.makePlay(model, row, col, clr);
+            moves++;
+            clr = !clr;
+        }
+        return moves;
+    }
+
+    /**
+     * The games from..to, split in half until a batch is small enough to play on one model
+     */
+    private class GameBatch extends RecursiveTask<SimulationReport> {
+
+        private final int from;
+        private final int to;
+        private final int batch;
+        private final long seed;
+
+        GameBatch(int from, int to, int batch, long seed) {
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+            this.seed = seed;
+        }
+
+        @Override
+        protected SimulationReport compute() {
+            if (to - from > batch) {
+                int mid = (from + to) >>> 1;
+                GameBatch left = new GameBatch(from, mid, batch, seed);
+                left.fork();
+                SimulationReport right = new GameBatch(mid, to, batch, seed).compute();
+                return right.merge(left.join());
+            }
+            SimulationReport report = new SimulationReport(size);
+            GameModel model = new GameModel(size);
+            for (int game = from; game < to; game++) {
+                model.reset();
+                SplittableRandom random = new SplittableRandom(seed + game * SEED_MIX);
+                int moves = playOut(model, white, black, GameModel.WHITE, random, metrics);
+                report.record(moves, model.whiteScore(), model.blackScore());
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Run a batch of random games from the command line
+     * @param args board size, number of games, an optional seed and an optional "metrics"
+     *             to measure every move, published over JMX and printed every second
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        boolean measure = args.length > 3 && args[3].equals("metrics");
+        SimulationEngine engine = new SimulationEngine(size);
+        //first run warms up the JIT
+        engine.run(Math.min(games, 1000), seed);
+        if (!measure) {
+            System.out.println(engine.run(games, seed));
+            return;
+        }
+        engine.setMetrics(MoveMetrics.global());
+        MetricsReporter reporter = new MetricsReporter(MoveMetrics.global(), 1, TimeUnit.SECONDS, System.out);
+        try {
+            System.out.println(engine.run(games, seed));
+        } finally {
+            reporter.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package islands.sim;
+
+/**
+ * Results of a batch of simulated games: throughput, game lengths and win rates.
+ * Each worker fills its own report and the reports are merged at the end.
+ */
+public class SimulationReport {
+
+    private static final int MAX_BUCKETS = 1024;
+
+    private final int boardSize;
+    private final int bucketWidth;
+    private final long[] movesHistogram;
+    private long games;
+    private long totalMoves;
+    private long whiteWins;
+    private long blackWins;
+    private long ties;
+    private long elapsedNanos;
+
+    /**
+     * An empty report for games on a size x size board
+     * @param boardSize the square size of the board
+     */
+    SimulationReport(int boardSize) {
+        this.boardSize = boardSize;
+        int maxMoves = boardSize * boardSize;
+        bucketWidth = Math.max(1, (maxMoves + MAX_BUCKETS - 1) / MAX_BUCKETS);
+        movesHistogram = new long[maxMoves / bucketWidth + 1];
+    }
+
+    /**
+     * Count one finished game
+     * @param moves the number of pieces played
+     * @param whiteScore white's final score
+     * @param blackScore black's final score
+     */
+    void record(int moves, int whiteScore, int blackScore) {
+        games++;
+        totalMoves += moves;
+        movesHistogram[moves / bucketWidth]++;
+        if (whiteScore > blackScore) {
+            whiteWins++;
+        } else if (blackScore > whiteScore) {
+            blackWins++;
+        } else {
+            ties++;
+        }
+    }
+
+    /**
+     * Add another worker's games to this report
+     * @param other the report to fold in
+     * @return this report
+     */
+    SimulationReport merge(SimulationReport other) {
+        games += other.games;
+        totalMoves += other.totalMoves;
+        whiteWins += other.whiteWins;
+        blackWins += other.blackWins;
+        ties += other.ties;
+        for (int i = 0; i < movesHistogram.length; i++) {
+            movesHistogram[i] += other.movesHistogram[i];
+        }
+        return this;
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWhiteWins() {
+        return whiteWins;
+    }
+
+    public long getBlackWins() {
+        return blackWins;
+    }
+
+    public long getTies() {
+        return ties;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Number of games whose length falls in the same histogram bucket as moves.
+     * Boards up to 32x32 have one bucket per game length.
+     * @param moves the game length
+     * @return the count of games
+     */
+    public long gamesWithMoves(int moves) {
+        int bucket = moves / bucketWidth;
+        return bucket < movesHistogram.length ? movesHistogram[bucket] : 0;
+    }
+
+    /**
+     * Games finished per second of wall clock time
+     * @return the throughput
+     */
+    public double gamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * The mean number of moves in a game
+     * @return the average game length
+     */
+    public double meanMoves() {
+        return games == 0 ? 0 : (double) totalMoves / games;
+    }
+
+    /**
+     * The game length that the given fraction of games do not exceed, to the histogram's bucket width
+     * @param fraction between 0 and 1, e.g. 0.5 for the median
+     * @return the number of moves
+     */
+    public int movesPercentile(double fraction) {
+        long target = (long) Math.ceil(fraction * games);
+        long seen = 0;
+        for (int bucket = 0; bucket < movesHistogram.length; bucket++) {
+            seen += movesHistogram[bucket];
+            if (seen >= target && seen > 0) {
+                return Math.min(boardSize * boardSize, (bucket + 1) * bucketWidth - 1);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games on %dx%d in %.1f ms (%.0f games/sec)%n"
+                        + "moves: mean %.1f, p50 %d, p90 %d, p99 %d, max %d%n"
+                        + "wins: white %.1f%%, black %.1f%%, tie %.1f%%",
+                games, boardSize, boardSize, elapsedNanos / 1e6, gamesPerSecond(),
+                meanMoves(), movesPercentile(0.5), movesPercentile(0.9), movesPercentile(0.99), movesPercentile(1.0),
+                percent(whiteWins), percent(blackWins), percent(ties));
+    }
+
+    private double percent(long count) {
+        return games == 0 ? 0 : 100.0 * count / games;
+    }
+}
@@ -0,0 +1,179 @@
+package islands.sim;
+
+import islands.backend.GameModel;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A round robin between players: every pair plays the same number of games, taking turns
+ * at moving first. Games are spread over a work-stealing pool and played straight on GameModel.
+ * Game i of a run always gets the same random seed and the same players in the same colours,
+ * so a seed gives the same results on any number of threads.
+ */
+public class Tournament {
+
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+
+    static final byte WHITE_WON = 1;
+    static final byte BLACK_WON = 2;
+    static final byte TIE = 3;
+
+    private final int size;
+    private final List<Player> players;
+    private final int gamesPerPair;
+    private final ForkJoinPool pool;
+    private final int[] pairWhite;
+    private final int[] pairBlack;
+
+    /**
+     * A tournament on the common pool
+     * @param size the square size of the board
+     * @param players at least two players
+     * @param gamesPerPair the games each pair plays, half with each player moving first
+     */
+    public Tournament(int size, List<Player> players, int gamesPerPair) {
+        this(size, players, gamesPerPair, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param size the square size of the board
+     * @param players at least two players
+     * @param gamesPerPair the games each pair plays, half with each player moving first
+     * @param pool the pool the games are run on
+     */
+    public Tournament(int size, List<Player> players, int gamesPerPair, ForkJoinPool pool) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid board size");
+        }
+        if (players.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs two players");
+        }
+        if (gamesPerPair <= 0) {
+            throw new IllegalArgumentException("Invalid game count");
+        }
+        this.size = size;
+        this.players = List.copyOf(players);
+        this.gamesPerPair = gamesPerPair;
+        this.pool = pool;
+        int pairs = players.size() * (players.size() - 1) / 2;
+        pairWhite = new int[pairs];
+        pairBlack = new int[pairs];
+        int pair = 0;
+        for (int i = 0; i < players.size(); i++) {
+            for (int j = i + 1; j < players.size(); j++) {
+                pairWhite[pair] = i;
+                pairBlack[pair++] = j;
+            }
+        }
+    }
+
+    /**
+     * The total number of games in a run
+     * @return pairs times games per pair
+     */
+    public long gameCount() {
+        return (long) pairWhite.length * gamesPerPair;
+    }
+
+    /**
+     * Play every game
+     * @param seed the seed for the whole tournament
+     * @return the results, with ratings
+     */
+    public TournamentResult run(long seed) {
+        if (gameCount() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many games");
+        }
+        int games = (int) gameCount();
+        byte[] outcomes = new byte[games];
+        long start = System.nanoTime();
+        int batch = Math.max(1, games / (pool.getParallelism() * 8));
+        pool.invoke(new MatchBatch(0, games, batch, seed, outcomes));
+        long elapsed = System.nanoTime() - start;
+
+        TournamentResult result = new TournamentResult(players, elapsed);
+        for (int game = 0; game < games; game++) {
+            result.record(white(game), black(game), outcomes[game]);
+        }
+        result.rate();
+        return result;
+    }
+
+    /**
+     * The player who moves first in game i, the two players of a pair swap every game
+     */
+    private int white(int game) {
+        int pair = game / gamesPerPair;
+        return game % gamesPerPair % 2 == 0 ? pairWhite[pair] : pairBlack[pair];
+    }
+
+    private int black(int game) {
+        int pair = game / gamesPerPair;
+        return game % gamesPerPair % 2 == 0 ? pairBlack[pair] : pairWhite[pair];
+    }
+
+    /**
+     * The games from..to, split in half until a batch is small enough to play on one model
+     */
+    private class MatchBatch extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int batch;
+        private final long seed;
+        private final byte[] outcomes;
+
+        MatchBatch(int from, int to, int batch, long seed, byte[] outcomes) {
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+            this.seed = seed;
+            this.outcomes = outcomes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > batch) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MatchBatch(from, mid, batch, seed, outcomes), new MatchBatch(mid, to, batch, seed, outcomes));
+                return;
+            }
+            GameModel model = new GameModel(size);
+            for (int game = from; game < to; game++) {
+                model.reset();
+                SplittableRandom random = new SplittableRandom(seed + game * SEED_MIX);
+                SimulationEngine.playOut(model, players.get(white(game)), players.get(black(game)), GameModel.WHITE, random);
+                int white = model.whiteScore();
+                int black = model.blackScore();
+                outcomes[game] = white > black ? WHITE_WON : black > white ? BLACK_WON : TIE;
+            }
+        }
+    }
+
+    /**
+     * Run random, greedy and search players against each other and print the table
+     * @param args board size, games per pair, an optional seed and an optional file to write the table to
+     * @throws IOException if the table can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+        int gamesPerPair = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        List<Player> players = new ArrayList<>(List.of(Player.random(), Player.greedy(), Player.search(50), Player.search(200)));
+        TournamentResult result = new Tournament(size, players, gamesPerPair).run(seed);
+        System.out.print(result);
+        if (args.length > 3) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(args[3])))) {
+                result.writeTable(out);
+            }
+        }
+    }
+}
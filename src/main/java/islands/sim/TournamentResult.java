@@ -0,0 +1,194 @@
+package islands.sim;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Wins, losses and ties of every player against every other, with Elo ratings fitted to them
+ */
+public class TournamentResult {
+
+    private static final double MEAN_ELO = 1500;
+    private static final int FIT_ROUNDS = 10000;
+
+    private final List<Player> players;
+    private final long elapsedNanos;
+    private final long[][] games;
+    private final long[][] wins;
+    private final long[][] ties;
+    private final double[] elo;
+
+    TournamentResult(List<Player> players, long elapsedNanos) {
+        int n = players.size();
+        this.players = players;
+        this.elapsedNanos = elapsedNanos;
+        games = new long[n][n];
+        wins = new long[n][n];
+        ties = new long[n][n];
+        elo = new double[n];
+    }
+
+    /**
+     * Count one game
+     * @param white the index of the player who moved first
+     * @param black the index of the other player
+     * @param outcome Tournament.WHITE_WON, BLACK_WON or TIE
+     */
+    void record(int white, int black, byte outcome) {
+        games[white][black]++;
+        games[black][white]++;
+        if (outcome == Tournament.WHITE_WON) {
+            wins[white][black]++;
+        } else if (outcome == Tournament.BLACK_WON) {
+            wins[black][white]++;
+        } else {
+            ties[white][black]++;
+            ties[black][white]++;
+        }
+    }
+
+    /**
+     * Fit Bradley-Terry strengths to the results by minorization-maximization, a tie counting
+     * half a win to each side, and put them on the Elo scale around MEAN_ELO. Every pair is
+     * given one extra tie so a player that won or lost every game still gets a finite rating.
+     */
+    void rate() {
+        int n = players.size();
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1);
+        for (int round = 0; round < FIT_ROUNDS; round++) {
+            double change = 0;
+            double logSum = 0;
+            for (int i = 0; i < n; i++) {
+                double points = 0;
+                double expected = 0;
+                for (int j = 0; j < n; j++) {
+                    if (i != j && games[i][j] > 0) {
+                        points += wins[i][j] + 0.5 * ties[i][j] + 0.5;
+                        expected += (games[i][j] + 1) / (strength[i] + strength[j]);
+                    }
+                }
+                double next = expected == 0 ? strength[i] : points / expected;
+                change = Math.max(change, Math.abs(Math.log(next / strength[i])));
+                strength[i] = next;
+                logSum += Math.log(next);
+            }
+            double scale = Math.exp(logSum / n);
+            for (int i = 0; i < n; i++) {
+                strength[i] /= scale;
+            }
+            if (change < 1e-12) {
+                break;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            elo[i] = MEAN_ELO + 400 * Math.log10(strength[i]);
+        }
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * The games played in the whole tournament
+     * @return the game count
+     */
+    public long getGames() {
+        long total = 0;
+        for (long[] row : games) {
+            total += Arrays.stream(row).sum();
+        }
+        return total / 2;
+    }
+
+    public long getGames(int player) {
+        return Arrays.stream(games[player]).sum();
+    }
+
+    public long getWins(int player) {
+        return Arrays.stream(wins[player]).sum();
+    }
+
+    public long getTies(int player) {
+        return Arrays.stream(ties[player]).sum();
+    }
+
+    public long getLosses(int player) {
+        return getGames(player) - getWins(player) - getTies(player);
+    }
+
+    /**
+     * How many games one player won against another
+     * @param player the index of the winner
+     * @param opponent the index of the loser
+     * @return the number of wins
+     */
+    public long getWins(int player, int opponent) {
+        return wins[player][opponent];
+    }
+
+    /**
+     * The fitted rating of a player, the ratings average MEAN_ELO
+     * @param player the player's index
+     * @return the Elo rating
+     */
+    public double getElo(int player) {
+        return elo[player];
+    }
+
+    /**
+     * Write the table as comma separated values, strongest player first
+     * @param out where to write
+     */
+    public void writeTable(PrintWriter out) {
+        out.println("rank,player,elo,games,wins,losses,ties,score");
+        int rank = 1;
+        for (int i : ranking()) {
+            out.printf("%d,%s,%.1f,%d,%d,%d,%d,%.4f%n", rank++, players.get(i).name(), elo[i],
+                    getGames(i), getWins(i), getLosses(i), getTies(i), score(i));
+        }
+        out.flush();
+    }
+
+    /**
+     * The share of points a player took from its games, a tie counting half
+     */
+    private double score(int player) {
+        long played = getGames(player);
+        return played == 0 ? 0 : (getWins(player) + 0.5 * getTies(player)) / played;
+    }
+
+    /**
+     * Player indices from highest to lowest rated
+     */
+    private int[] ranking() {
+        return IntStream.range(0, players.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -elo[i]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public String toString() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("%d games in %.1f ms (%.0f games/sec)%n", getGames(), elapsedNanos / 1e6,
+                elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos);
+        out.printf("%4s %-16s %7s %8s %8s %8s %8s %7s%n", "rank", "player", "elo", "games", "wins", "losses", "ties", "score");
+        int rank = 1;
+        for (int i : ranking()) {
+            out.printf("%4d %-16s %7.1f %8d %8d %8d %8d %6.1f%%%n", rank++, players.get(i).name(), elo[i],
+                    getGames(i), getWins(i), getLosses(i), getTies(i), 100 * score(i));
+        }
+        out.flush();
+        return text.toString();
+    }
+}
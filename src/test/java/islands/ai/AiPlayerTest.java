@@ -0,0 +1,73 @@
+package islands.ai;
+
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiPlayerTest {
+
+    final int SMALL = 5;
+
+    @Test
+    @DisplayName("Chosen move is legal and the position is untouched")
+    void choosesLegalMove() {
+        GameModel model = new GameModel(SMALL);
+        model.makePlay(2,2, GameModel.WHITE);
+        AiPlayer ai = AiPlayer.withPlayoutBudget(2000, 2, 1);
+        SearchResult result = ai.chooseMove(model, GameModel.BLACK);
+        ai.shutdown();
+        assertTrue(model.canPlay(result.getMove() / SMALL, result.getMove() % SMALL), "move must be into an empty cell");
+        assertEquals(2000, result.getPlayouts(), "runs exactly the playout budget");
+        assertEquals(SMALL * SMALL - 1, model.emptyCells().count(), "search works on copies");
+    }
+
+    @Test
+    @DisplayName("Time budget stops the search")
+    void timeBudget() {
+        AiPlayer ai = AiPlayer.withTimeBudget(100);
+        SearchResult result = ai.chooseMove(new GameModel(SMALL * 2), GameModel.WHITE);
+        ai.shutdown();
+        assertTrue(result.getElapsedNanos() < 2_000_000_000L, "search ends near its time budget");
+        assertTrue(result.getPlayouts() > 0, "some playouts ran");
+    }
+
+    @Test
+    @DisplayName("Search beats random play on a small board")
+    void beatsRandom() {
+        AiPlayer ai = AiPlayer.withPlayoutBudget(1000, 2, 7);
+        SplittableRandom random = new SplittableRandom(7);
+        int aiWins = 0;
+        int games = 10;
+        for (int game = 0; game < games; game++) {
+            GameModel model = new GameModel(SMALL);
+            boolean aiColor = game % 2 == 0;
+            boolean clr = GameModel.WHITE;
+            boolean done = false;
+            while (!done) {
+                int index = clr == aiColor ? ai.chooseMove(model, clr).getMove() : model.randomEmptyCell(random);
+                done = model.makePlay(index / SMALL, index % SMALL, clr);
+                clr = !clr;
+            }
+            int mine = aiColor == GameModel.WHITE ? model.whiteScore() : model.blackScore();
+            int theirs = aiColor == GameModel.WHITE ? model.blackScore() : model.whiteScore();
+            if (mine > theirs) {
+                aiWins++;
+            }
+        }
+        ai.shutdown();
+        assertTrue(aiWins > games / 2, "search should win most games against random moves, won " + aiWins);
+    }
+
+    @Test
+    @DisplayName("No move on a finished game")
+    void gameOverThrows() {
+        GameModel model = new GameModel(1);
+        model.makePlay(0,0, GameModel.WHITE);
+        AiPlayer ai = AiPlayer.withPlayoutBudget(10, 1, 1);
+        assertThrows(IllegalStateException.class, ()->ai.chooseMove(model, GameModel.BLACK));
+        ai.shutdown();
+    }
+}
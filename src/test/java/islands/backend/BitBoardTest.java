@@ -0,0 +1,117 @@
+package islands.backend;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitBoardTest {
+
+    private static boolean anySpans(GameModel model, boolean clr) {
+        for (Island island : model.islands(clr)) {
+            if (island.spansBoard()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    @DisplayName("Pieces can be placed, replaced and cleared")
+    void setAndClear() {
+        BitBoard board = new BitBoard(5);
+        board.set(2, 3, GameModel.WHITE);
+        assertTrue(board.has(2, 3, GameModel.WHITE), "white piece");
+        board.set(2, 3, GameModel.BLACK);
+        assertFalse(board.has(2, 3, GameModel.WHITE), "replaced");
+        assertTrue(board.has(2, 3, GameModel.BLACK), "black piece");
+        assertEquals(1, board.pieces(GameModel.BLACK), "one black piece");
+        board.clear(2, 3);
+        assertEquals(0, board.pieces(GameModel.BLACK), "cleared");
+        assertEquals(0, board.islandSize(2, 3), "no island on an empty cell");
+        assertThrows(IllegalArgumentException.class, () -> board.set(5, 0, GameModel.WHITE));
+        assertThrows(IllegalArgumentException.class, () -> board.has(0, -1, GameModel.WHITE));
+        assertThrows(IllegalArgumentException.class, () -> new BitBoard(0));
+    }
+
+    @Test
+    @DisplayName("Pieces at the ends of neighbouring rows are not joined")
+    void rowEndsApart() {
+        BitBoard board = new BitBoard(4);
+        board.set(0, 3, GameModel.BLACK);
+        board.set(1, 0, GameModel.BLACK);
+        assertEquals(2, board.islandCount(GameModel.BLACK), "the end of a row doesn't touch the start of the next");
+        board.set(1, 3, GameModel.BLACK);
+        assertEquals(2, board.islandCount(GameModel.BLACK), "straight down joins");
+        assertEquals(2, board.islandSize(0, 3), "two pieces");
+    }
+
+    @Test
+    @DisplayName("A winding chain spans the board, a broken one doesn't")
+    void windingChain() {
+        int size = 9;
+        BitBoard board = new BitBoard(size);
+        // down column 0, across row 4, down column 8
+        for (int row = 0; row <= 4; row++) {
+            board.set(row, 0, GameModel.WHITE);
+        }
+        for (int col = 1; col < size; col++) {
+            board.set(4, col, GameModel.WHITE);
+        }
+        for (int row = 5; row < size; row++) {
+            board.set(row, size - 1, GameModel.WHITE);
+        }
+        assertTrue(board.spans(GameModel.WHITE), "top joined to bottom");
+        assertTrue(board.spans(GameModel.WHITE), "again, the scratch buffers are clean");
+        assertFalse(board.spans(GameModel.BLACK), "no black pieces");
+        board.clear(4, 5);
+        assertFalse(board.spans(GameModel.WHITE), "broken");
+        assertEquals(2, board.islandCount(GameModel.WHITE), "two halves");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 7, 11, 62, 63, 64, 127})
+    @DisplayName("Scores, spans and island sizes agree with GameModel through random games")
+    void agreesWithGameModel(int size) {
+        SplittableRandom random = new SplittableRandom(size);
+        GameModel model = new GameModel(size);
+        BitBoard board = new BitBoard(size);
+        int checks = Math.max(1, size * size / 40);
+        for (int move = 0; move < size * size; move++) {
+            int cell = model.randomEmptyCell(random);
+            boolean clr = random.nextBoolean();
+            model.makePlay(cell / size, cell % size, clr);
+            board.set(cell / size, cell % size, clr);
+            if (move % checks == 0 || move == size * size - 1) {
+                String where = "size " + size + " after move " + move;
+                assertEquals(model.whiteScore(), board.islandCount(GameModel.WHITE), where);
+                assertEquals(model.blackScore(), board.islandCount(GameModel.BLACK), where);
+                assertEquals(anySpans(model, GameModel.WHITE), board.spans(GameModel.WHITE), where);
+                assertEquals(anySpans(model, GameModel.BLACK), board.spans(GameModel.BLACK), where);
+                int row = random.nextInt(size);
+                int col = random.nextInt(size);
+                int expected = model.islandAt(row, col).map(Island::getSize).orElse(0);
+                assertEquals(expected, board.islandSize(row, col), where + " at " + row + "," + col);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A bit board of a game has its pieces")
+    void ofGameModel() {
+        GameModel model = new GameModel(11);
+        SplittableRandom random = new SplittableRandom(5);
+        for (int move = 0; move < 60; move++) {
+            int cell = model.randomEmptyCell(random);
+            model.makePlay(cell / 11, cell % 11, move % 2 == 0);
+        }
+        BitBoard board = BitBoard.of(model);
+        assertEquals(30, board.pieces(GameModel.WHITE), "white pieces");
+        assertEquals(30, board.pieces(GameModel.BLACK), "black pieces");
+        assertEquals(model.whiteScore(), board.islandCount(GameModel.WHITE), "white score");
+        assertEquals(model.blackScore(), board.islandCount(GameModel.BLACK), "black score");
+    }
+}
@@ -0,0 +1,183 @@
+package islands.backend;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventsTest {
+
+    /**
+     * Everything a cursor has to hand, as "type:detail" strings
+     */
+    private static List<String> drain(GameEvents.Cursor cursor) {
+        List<String> seen = new ArrayList<>();
+        cursor.poll((sequence, event) -> seen.add(describe(event)), Integer.MAX_VALUE);
+        return seen;
+    }
+
+    private static String describe(long event) {
+        switch (GameEvents.type(event)) {
+            case GameEvents.MOVE:
+                return "move " + GameEvents.cell(event) + (GameEvents.color(event) == GameModel.WHITE ? " white" : " black");
+            case GameEvents.MERGED:
+                return "merged " + GameEvents.joined(event) + " at " + GameEvents.cell(event);
+            case GameEvents.SCORE:
+                return "score " + GameEvents.whiteScore(event) + " " + GameEvents.blackScore(event);
+            case GameEvents.GAME_OVER:
+                return "over " + GameEvents.cell(event);
+            case GameEvents.UNDONE:
+                return "undone " + GameEvents.cell(event);
+            case GameEvents.RESET:
+                return "reset";
+            default:
+                return "unknown " + event;
+        }
+    }
+
+    @Test
+    @DisplayName("Moves, merges, score changes, game over, undo and reset are published in order")
+    void eventsInOrder() {
+        GameModel model = new GameModel(3);
+        GameEvents events = new GameEvents(64);
+        model.setEvents(events);
+        GameEvents.Cursor cursor = events.subscribe();
+
+        model.makePlay(0, 1, GameModel.WHITE);
+        model.makePlay(2, 1, GameModel.WHITE);
+        model.makePlay(0, 0, GameModel.BLACK);
+        assertEquals(List.of("move 1 white", "score 1 0", "move 7 white", "score 2 0", "move 0 black", "score 2 1"),
+                drain(cursor), "lone pieces change the score");
+
+        model.makePlay(1, 1, GameModel.WHITE);
+        assertEquals(List.of("move 4 white", "merged 3 at 4", "score 1 1", "over 4"), drain(cursor),
+                "joining three islands lowers the score and connects the edges");
+
+        model.makePlay(1, 0, GameModel.BLACK);
+        assertEquals(List.of("move 3 black", "merged 2 at 3"), drain(cursor), "joining two islands leaves the score");
+
+        model.undo();
+        model.undo();
+        model.reset();
+        assertEquals(List.of("undone 3", "over 3", "undone 4", "score 2 1", "reset"), drain(cursor),
+                "undo and reset, the game stays over until the winning piece is taken back");
+        assertEquals(17, events.published(), "events counted");
+        assertEquals(0, cursor.lost(), "nothing lost");
+    }
+
+    @Test
+    @DisplayName("Every cursor reads at its own pace")
+    void cursorsIndependent() {
+        GameModel model = new GameModel(5);
+        GameEvents events = new GameEvents(16);
+        model.setEvents(events);
+        GameEvents.Cursor early = events.subscribe();
+        model.makePlay(0, 0, GameModel.WHITE);
+        GameEvents.Cursor late = events.subscribe();
+        model.makePlay(4, 4, GameModel.BLACK);
+
+        assertEquals(1, early.poll((sequence, event) -> assertEquals(0, sequence, "first event"), 1), "one at a time");
+        assertEquals(3, early.backlog(), "three to go");
+        assertEquals(List.of("move 24 black", "score 1 1"), drain(late), "late cursor starts at the next event");
+        assertEquals(List.of("score 1 0", "move 24 black", "score 1 1"), drain(early), "early cursor catches up");
+        assertEquals(List.of("move 0 white", "score 1 0", "move 24 black", "score 1 1"),
+                drain(events.subscribeFromOldest()), "from the oldest kept");
+    }
+
+    @Test
+    @DisplayName("A cursor more than a ring behind loses the oldest events, the producer never waits")
+    void slowCursorLoses() {
+        GameModel model = new GameModel(11);
+        GameEvents events = new GameEvents(4);
+        model.setEvents(events);
+        GameEvents.Cursor cursor = events.subscribe();
+        for (int col = 0; col < 10; col += 2) {
+            model.makePlay(0, col, GameModel.WHITE);
+        }
+        assertEquals(10, events.published(), "two events per lone piece");
+        assertEquals(List.of("move 6 white", "score 4 0", "move 8 white", "score 5 0"), drain(cursor), "the last ring full");
+        assertEquals(6, cursor.lost(), "the rest lost");
+    }
+
+    @Test
+    @DisplayName("A game without a ring publishes nothing, and bad capacities are refused")
+    void detached() {
+        GameModel model = new GameModel(5);
+        GameEvents events = new GameEvents(8);
+        model.setEvents(events);
+        model.makePlay(0, 0, GameModel.WHITE);
+        model.setEvents(null);
+        model.makePlay(1, 1, GameModel.WHITE);
+        assertEquals(2, events.published(), "only while attached");
+        assertNull(model.snapshot().getEvents(), "snapshots don't publish");
+        assertThrows(IllegalArgumentException.class, () -> new GameEvents(0));
+        assertThrows(IllegalArgumentException.class, () -> new GameEvents(12));
+    }
+
+    @Test
+    @DisplayName("A consumer on another thread sees every event whole or counts it lost")
+    void concurrentConsumer() throws Exception {
+        int size = 11;
+        int games = 300;
+        GameEvents events = new GameEvents(256);
+        // what the producer published, by sequence, from a cursor on the producer's own thread
+        long[] expected = new long[games * size * size * 8];
+        long[] received = new long[expected.length];
+        AtomicBoolean done = new AtomicBoolean();
+        long[] counts = new long[2];
+        GameEvents.Cursor cursor = events.subscribe();
+        Thread consumer = new Thread(() -> {
+            long[] last = {-1};
+            GameEvents.Handler handler = (sequence, event) -> {
+                assertTrue(sequence > last[0], "sequences increase");
+                last[0] = sequence;
+                received[(int) sequence] = event;
+                counts[0]++;
+            };
+            while (!done.get()) {
+                cursor.poll(handler, 64);
+            }
+            cursor.poll(handler, Integer.MAX_VALUE);
+            counts[1] = cursor.lost();
+        });
+        Throwable[] failure = new Throwable[1];
+        consumer.setUncaughtExceptionHandler((thread, e) -> failure[0] = e);
+        consumer.start();
+
+        GameModel model = new GameModel(size);
+        model.setEvents(events);
+        GameEvents.Cursor own = events.subscribe();
+        GameEvents.Handler record = (sequence, event) -> expected[(int) sequence] = event;
+        SplittableRandom random = new SplittableRandom(24);
+        for (int game = 0; game < games; game++) {
+            boolean clr = GameModel.WHITE;
+            int cell = model.randomEmptyCell(random);
+            while (cell >= 0 && !model.isGameOver()) {
+                model.makePlay(cell / size, cell % size, clr);
+                if (random.nextInt(8) == 0) {
+                    model.undo();
+                } else {
+                    clr = !clr;
+                }
+                own.poll(record, Integer.MAX_VALUE);
+                cell = model.randomEmptyCell(random);
+            }
+            model.reset();
+            own.poll(record, Integer.MAX_VALUE);
+        }
+        done.set(true);
+        consumer.join();
+        assertNull(failure[0], "consumer failed");
+
+        assertEquals(events.published(), counts[0] + counts[1], "every event read or counted lost");
+        for (int seq = 0; seq < events.published(); seq++) {
+            if (received[seq] != 0) {
+                assertEquals(expected[seq], received[seq], "event " + seq + " read whole");
+            }
+        }
+    }
+}
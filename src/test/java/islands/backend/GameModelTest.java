@@ -5,6 +5,13 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -100,6 +107,39 @@ class GameModelTest {
             GameModel model = new GameModel(SUPER_LARGE);
             assertTrue(model.canPlay(SUPER_LARGE-1, SUPER_LARGE-1), "canPlay into empty spot on SUPER_LARGE is True ");
         }
+
+        @Test
+        void canPlayHasNoSideEffect() {
+            GameModel model = new GameModel(SMALL);
+            assertTrue(model.canPlay(2,2), "canPlay into empty spot is true");
+            assertTrue(model.canPlay(2,2), "asking again doesn't claim the spot");
+            assertEquals(SMALL * SMALL, model.emptyCells().count(), "canPlay doesn't change the empty cells");
+        }
+
+        @Test
+        void playIntoOccupiedSpotThrows() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(1,1, GameModel.WHITE);
+            assertThrows(IllegalArgumentException.class, ()->model.makePlay(1,1, GameModel.BLACK), "expecting illegal argument exception on occupied spot");
+        }
+
+        @Test
+        void emptyCellsTrackPlays() {
+            GameModel model = new GameModel(MEDIUM);
+            model.makePlay(0,0, GameModel.WHITE);
+            model.makePlay(5,7, GameModel.BLACK);
+            assertEquals(MEDIUM * MEDIUM - 2, model.emptyCells().count(), "two cells played");
+            assertFalse(model.emptyCells().contains(5 * MEDIUM + 7), "played cell isn't empty");
+            assertEquals(1, model.emptyCells().nextCell(0), "first empty cell follows the corner");
+
+            int seen = 0;
+            for (int index = model.emptyCells().nextCell(0); index >= 0; index = model.emptyCells().nextCell(index + 1)) {
+                assertTrue(model.canPlay(index / MEDIUM, index % MEDIUM), "every listed cell can be played");
+                seen++;
+            }
+            assertEquals(MEDIUM * MEDIUM - 2, seen, "iteration visits every empty cell");
+            assertEquals(seen, model.emptyCells().copyInto(new BitSet()).cardinality(), "bitset copy matches");
+        }
     }
 
     //some manually crafted scenarios
@@ -244,6 +284,720 @@ class GameModelTest {
             done = model.makePlay(1,4, GameModel.BLACK);
             assertTrue(done, "game should be over");
         }
+
+        @Test
+        @DisplayName("White snake longer than the board that misses the bottom edge")
+        void whiteSnakeNotTouchingBottom() {
+            GameModel model = new GameModel(SMALL);
+            for (int col = 0; col < SMALL; col++) {
+                assertFalse(model.makePlay(0, col, GameModel.WHITE), "top row alone doesn't finish the game");
+            }
+            boolean done = model.makePlay(1, 4, GameModel.WHITE);
+            assertFalse(done, "6 connected pieces that miss the bottom edge shouldn't finish the game");
+            assertEquals(1, model.whiteScore(), "the snake is a single island");
+        }
+
+        @Test
+        @DisplayName("White winding chain longer than the board reaches the bottom")
+        void whiteWindingChain() {
+            GameModel model = new GameModel(SMALL);
+            int[][] chain = {{0, 0}, {1, 0}, {1, 1}, {1, 2}, {2, 2}, {3, 2}};
+            for (int[] cell : chain) {
+                assertFalse(model.makePlay(cell[0], cell[1], GameModel.WHITE), "game shouldn't be finished yet");
+            }
+            boolean done = model.makePlay(4, 2, GameModel.WHITE);
+            assertTrue(done, "7 piece chain from top to bottom should finish the game");
+            assertEquals(1, model.whiteScore(), "the chain is a single island");
+        }
+
+        @Test
+        @DisplayName("Black winding chain longer than the board reaches the right edge")
+        void blackWindingChain() {
+            GameModel model = new GameModel(SMALL);
+            int[][] chain = {{2, 0}, {2, 1}, {3, 2}, {3, 3}, {2, 3}};
+            for (int[] cell : chain) {
+                assertFalse(model.makePlay(cell[0], cell[1], GameModel.BLACK), "game shouldn't be finished yet");
+            }
+            boolean done = model.makePlay(2, 4, GameModel.BLACK);
+            assertTrue(done, "chain from left to right should finish the game");
+            assertEquals(1, model.blackScore(), "the chain is a single island");
+        }
+    }
+
+    @Nested
+    class RandomMoveTests {
+
+        @Test
+        @DisplayName("Random cells are always playable until the board is full")
+        void randomCellsFillTheBoard() {
+            GameModel model = new GameModel(MEDIUM);
+            SplittableRandom random = new SplittableRandom(42);
+            boolean color = GameModel.WHITE;
+            for (int played = 0; played < MEDIUM * MEDIUM; played++) {
+                int index = model.randomEmptyCell(random);
+                assertTrue(model.canPlay(index / MEDIUM, index % MEDIUM), "random cell must be empty");
+                model.makePlay(index / MEDIUM, index % MEDIUM, color);
+                color = !color;
+            }
+            assertEquals(-1, model.randomEmptyCell(random), "no empty cell on a full board");
+            assertTrue(model.isGameOver(), "a full board always has a winner");
+        }
+
+        @Test
+        @DisplayName("The same seed picks the same cells")
+        void seededRandomIsRepeatable() {
+            GameModel first = new GameModel(LARGE);
+            GameModel second = new GameModel(LARGE);
+            SplittableRandom firstRandom = new SplittableRandom(7);
+            SplittableRandom secondRandom = new SplittableRandom(7);
+            for (int i = 0; i < 100; i++) {
+                int index = first.randomEmptyCell(firstRandom);
+                assertEquals(index, second.randomEmptyCell(secondRandom), "same seed, same move");
+                first.makePlay(index / LARGE, index % LARGE, GameModel.BLACK);
+                second.makePlay(index / LARGE, index % LARGE, GameModel.BLACK);
+            }
+        }
+    }
+
+    @Nested
+    class UndoTests {
+
+        @Test
+        @DisplayName("Undo on a new game throws")
+        void undoEmptyGame() {
+            GameModel model = new GameModel(SMALL);
+            assertThrows(IllegalStateException.class, model::undo, "nothing to undo");
+            assertThrows(IllegalArgumentException.class, ()->model.undo(1), "can't undo more moves than played");
+        }
+
+        @Test
+        @DisplayName("Undo restores scores and game over after every move")
+        void undoRestoresEveryPosition() {
+            GameModel model = new GameModel(MEDIUM);
+            SplittableRandom random = new SplittableRandom(11);
+            int[] white = new int[MEDIUM * MEDIUM + 1];
+            int[] black = new int[MEDIUM * MEDIUM + 1];
+            boolean color = GameModel.WHITE;
+            int played = 0;
+            boolean done = false;
+            while (!done) {
+                int index = model.randomEmptyCell(random);
+                done = model.makePlay(index / MEDIUM, index % MEDIUM, color);
+                color = !color;
+                played++;
+                white[played] = model.whiteScore();
+                black[played] = model.blackScore();
+            }
+            assertEquals(played, model.moveCount(), "every move is recorded");
+            model.undo();
+            assertFalse(model.isGameOver(), "undoing the winning move reopens the game");
+            for (int moves = played - 1; moves > 0; moves--) {
+                assertEquals(white[moves], model.whiteScore(), "white score after undo");
+                assertEquals(black[moves], model.blackScore(), "black score after undo");
+                model.undo();
+            }
+            assertEquals(0, model.whiteScore(), "back to an empty board");
+            assertEquals(0, model.blackScore(), "back to an empty board");
+            assertEquals(MEDIUM * MEDIUM, model.emptyCells().count(), "every cell empty again");
+        }
+
+        @Test
+        @DisplayName("Undo then replay reaches the same position")
+        void undoThenReplay() {
+            GameModel model = new GameModel(LARGE);
+            SplittableRandom random = new SplittableRandom(5);
+            for (int i = 0; i < 50; i++) {
+                int index = model.randomEmptyCell(random);
+                model.makePlay(index / LARGE, index % LARGE, i % 2 == 0);
+            }
+            int[] moves = new int[300];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = model.randomEmptyCell(random);
+                model.makePlay(moves[i] / LARGE, moves[i] % LARGE, i % 2 == 0);
+            }
+            int white = model.whiteScore();
+            int black = model.blackScore();
+            long[] empty = model.emptyCells().copyWords(new long[model.emptyCells().wordCount()]);
+
+            model.undo(moves.length);
+            assertEquals(50, model.moveCount(), "back to 50 moves");
+            for (int i = 0; i < moves.length; i++) {
+                model.makePlay(moves[i] / LARGE, moves[i] % LARGE, i % 2 == 0);
+            }
+            assertEquals(white, model.whiteScore(), "same white score after replay");
+            assertEquals(black, model.blackScore(), "same black score after replay");
+            assertArrayEquals(empty, model.emptyCells().copyWords(new long[model.emptyCells().wordCount()]), "same empty cells after replay");
+        }
+
+        @Test
+        @DisplayName("Undo the joining piece splits the islands again")
+        void undoSplitsIslands() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(1,1,GameModel.BLACK);
+            model.makePlay(2, 3, GameModel.BLACK);
+            model.makePlay(3,2, GameModel.BLACK);
+            model.makePlay(2,2, GameModel.BLACK);
+            assertEquals(1, model.blackScore(), "expecting one connected component");
+            model.undo();
+            assertEquals(3, model.blackScore(), "expecting three islands again");
+            assertTrue(model.canPlay(2, 2), "undone spot is empty");
+            assertEquals(3 * SMALL + 2, model.lastMove(), "last move is the one before");
+        }
+    }
+
+    @Nested
+    class IslandTests {
+
+        private final int[] rowOffsets = {-1, -1, 0, 0, 1, 1};
+        private final int[] colOffsets = {-1, 0, -1, 1, 0, 1};
+
+        /**
+         * Check an island against a flood fill from one of its pieces
+         */
+        private void assertMatchesFloodFill(GameModel model, boolean[][] white, boolean[][] played, int row, int col) {
+            int size = model.size;
+            boolean clr = white[row][col];
+            boolean[][] seen = new boolean[size][size];
+            int[] stack = new int[size * size];
+            int top = 0;
+            stack[top++] = row * size + col;
+            seen[row][col] = true;
+            int pieces = 0, liberties = 0;
+            int minRow = size, maxRow = -1, minCol = size, maxCol = -1;
+            while (top > 0) {
+                int cell = stack[--top];
+                int r = cell / size, c = cell % size;
+                pieces++;
+                minRow = Math.min(minRow, r);
+                maxRow = Math.max(maxRow, r);
+                minCol = Math.min(minCol, c);
+                maxCol = Math.max(maxCol, c);
+                for (int d = 0; d < 6; d++) {
+                    int nr = r + rowOffsets[d], nc = c + colOffsets[d];
+                    if (nr < 0 || nr >= size || nc < 0 || nc >= size) {
+                        continue;
+                    }
+                    if (!played[nr][nc]) {
+                        liberties++;
+                    } else if (white[nr][nc] == clr && !seen[nr][nc]) {
+                        seen[nr][nc] = true;
+                        stack[top++] = nr * size + nc;
+                    }
+                }
+            }
+            Island island = model.islandAt(row, col).orElseThrow();
+            String where = "island at " + row + "," + col;
+            assertEquals(clr, island.getColor(), where);
+            assertEquals(pieces, island.getSize(), where);
+            assertEquals(liberties, island.getLiberties(), where);
+            assertEquals(minRow, island.getMinRow(), where);
+            assertEquals(maxRow, island.getMaxRow(), where);
+            assertEquals(minCol, island.getMinCol(), where);
+            assertEquals(maxCol, island.getMaxCol(), where);
+        }
+
+        @Test
+        @DisplayName("An empty cell has no island")
+        void emptyCell() {
+            GameModel model = new GameModel(SMALL);
+            assertTrue(model.islandAt(2, 2).isEmpty(), "no island on an empty cell");
+            assertTrue(model.largestIsland(GameModel.WHITE).isEmpty(), "no white pieces");
+            assertFalse(model.islands(GameModel.BLACK).iterator().hasNext(), "no black islands");
+            assertThrows(IllegalArgumentException.class, () -> model.islandAt(SMALL, 0));
+        }
+
+        @Test
+        @DisplayName("A single piece knows its size, bounds and liberties")
+        void singlePiece() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(0, 0, GameModel.WHITE);
+            model.makePlay(2, 2, GameModel.BLACK);
+            Island corner = model.islandAt(0, 0).orElseThrow();
+            assertEquals(1, corner.getSize(), "one piece");
+            assertEquals(3, corner.getLiberties(), "a corner has three neighbours");
+            assertTrue(corner.touchesTop() && corner.touchesLeft(), "in the top left corner");
+            assertFalse(corner.touchesBottom() || corner.touchesRight(), "away from the other edges");
+            assertEquals(6, model.islandAt(2, 2).orElseThrow().getLiberties(), "six liberties in the middle");
+        }
+
+        @Test
+        @DisplayName("Joining islands adds up their sizes and bounds, and undo splits them")
+        void joinAndUndo() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(1, 1, GameModel.BLACK);
+            model.makePlay(2, 3, GameModel.BLACK);
+            model.makePlay(3, 2, GameModel.BLACK);
+            model.makePlay(2, 2, GameModel.BLACK);
+            Island joined = model.islandAt(3, 2).orElseThrow();
+            assertEquals(4, joined.getSize(), "four pieces");
+            assertEquals(1, joined.getMinRow(), "top row");
+            assertEquals(3, joined.getMaxRow(), "bottom row");
+            assertEquals(1, joined.getMinCol(), "left col");
+            assertEquals(3, joined.getMaxCol(), "right col");
+            assertEquals(joined.getRoot(), model.islandAt(1, 1).orElseThrow().getRoot(), "one root");
+            model.undo();
+            Island alone = model.islandAt(2, 3).orElseThrow();
+            assertEquals(1, alone.getSize(), "split again");
+            assertEquals(6, alone.getLiberties(), "the undone piece is a liberty again");
+            assertEquals(3, alone.getMinCol(), "box of the single piece");
+            assertEquals(2, alone.getMaxRow(), "box of the single piece");
+        }
+
+        @Test
+        @DisplayName("A piece takes a liberty from the other colour, undo gives it back")
+        void otherColourLiberties() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(2, 2, GameModel.WHITE);
+            model.makePlay(2, 3, GameModel.BLACK);
+            assertEquals(5, model.islandAt(2, 2).orElseThrow().getLiberties(), "one neighbour taken");
+            model.undo();
+            assertEquals(6, model.islandAt(2, 2).orElseThrow().getLiberties(), "given back");
+        }
+
+        @Test
+        @DisplayName("Islands match a flood fill through random play and undo")
+        void matchesFloodFill() {
+            SplittableRandom random = new SplittableRandom(20);
+            GameModel model = new GameModel(MEDIUM);
+            boolean[][] white = new boolean[MEDIUM][MEDIUM];
+            boolean[][] played = new boolean[MEDIUM][MEDIUM];
+            for (int move = 0; move < MEDIUM * MEDIUM; move++) {
+                int cell = model.randomEmptyCell(random);
+                int row = cell / MEDIUM, col = cell % MEDIUM;
+                boolean clr = random.nextBoolean();
+                model.makePlay(row, col, clr);
+                white[row][col] = clr == GameModel.WHITE;
+                played[row][col] = true;
+                if (move % 7 == 3) {
+                    model.undo();
+                    played[row][col] = false;
+                }
+                for (int r = 0; r < MEDIUM; r++) {
+                    for (int c = 0; c < MEDIUM; c++) {
+                        if (played[r][c]) {
+                            assertMatchesFloodFill(model, white, played, r, c);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Iterating the islands counts the score, and the largest is the biggest of them")
+        void islandsAndLargest() {
+            SplittableRandom random = new SplittableRandom(3);
+            GameModel model = new GameModel(LARGE);
+            for (int move = 0; move < 300; move++) {
+                int cell = model.randomEmptyCell(random);
+                model.makePlay(cell / LARGE, cell % LARGE, move % 2 == 0);
+            }
+            for (boolean clr : new boolean[]{GameModel.WHITE, GameModel.BLACK}) {
+                int count = 0, pieces = 0, biggest = 0;
+                for (Island island : model.islands(clr)) {
+                    assertEquals(clr, island.getColor(), "colour of " + island);
+                    count++;
+                    pieces += island.getSize();
+                    biggest = Math.max(biggest, island.getSize());
+                }
+                assertEquals(clr == GameModel.WHITE ? model.whiteScore() : model.blackScore(), count, "one island per score");
+                assertEquals(150, pieces, "every piece in an island");
+                assertEquals(biggest, model.largestIsland(clr).orElseThrow().getSize(), "largest island");
+            }
+        }
+
+        @Test
+        @DisplayName("The islands iterated are the roots on the board through random play and undo")
+        void islandsThroughUndo() {
+            SplittableRandom random = new SplittableRandom(11);
+            GameModel model = new GameModel(MEDIUM);
+            for (int move = 0; move < MEDIUM * MEDIUM; move++) {
+                int cell = model.randomEmptyCell(random);
+                model.makePlay(cell / MEDIUM, cell % MEDIUM, random.nextBoolean());
+                if (move % 5 == 2) {
+                    model.undo(2);
+                }
+                for (boolean clr : new boolean[]{GameModel.WHITE, GameModel.BLACK}) {
+                    Set<Integer> roots = new HashSet<>();
+                    for (int row = 0; row < MEDIUM; row++) {
+                        for (int col = 0; col < MEDIUM; col++) {
+                            model.islandAt(row, col).filter(island -> island.getColor() == clr)
+                                    .ifPresent(island -> roots.add(island.getRoot()));
+                        }
+                    }
+                    Set<Integer> iterated = new HashSet<>();
+                    for (Island island : model.islands(clr)) {
+                        assertTrue(iterated.add(island.getRoot()), "each island once");
+                    }
+                    assertEquals(roots, iterated, "move " + move);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Undo restores the largest island")
+        void undoLargest() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(0, 0, GameModel.WHITE);
+            model.makePlay(0, 1, GameModel.WHITE);
+            model.makePlay(3, 3, GameModel.WHITE);
+            assertEquals(2, model.largestIsland(GameModel.WHITE).orElseThrow().getSize(), "pair is largest");
+            model.undo();
+            model.undo();
+            assertEquals(1, model.largestIsland(GameModel.WHITE).orElseThrow().getSize(), "back to one piece");
+            model.undo();
+            assertTrue(model.largestIsland(GameModel.WHITE).isEmpty(), "no pieces left");
+        }
+
+        @Test
+        @DisplayName("The winning island spans the board")
+        void winningIslandSpans() {
+            GameModel model = new GameModel(SMALL);
+            boolean over = false;
+            for (int row = 0; row < SMALL; row++) {
+                over = model.makePlay(row, 2, GameModel.WHITE);
+            }
+            assertTrue(over, "white connected top and bottom");
+            assertTrue(model.largestIsland(GameModel.WHITE).orElseThrow().spansBoard(), "largest island spans the board");
+        }
+    }
+
+    @Nested
+    class SnapshotTests {
+
+        @Test
+        @DisplayName("Snapshot and original play on independently")
+        void snapshotIsIndependent() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(1,1, GameModel.WHITE);
+            model.makePlay(1,3, GameModel.WHITE);
+            GameModel fork = model.snapshot();
+            assertEquals(2, fork.whiteScore(), "snapshot keeps the score");
+            assertEquals(0, fork.moveCount(), "snapshot starts with nothing to undo");
+
+            fork.makePlay(1,2, GameModel.WHITE);
+            assertEquals(1, fork.whiteScore(), "fork joins the islands");
+            assertEquals(2, model.whiteScore(), "original doesn't see the fork's move");
+            assertTrue(model.canPlay(1,2), "original cell still empty");
+
+            model.makePlay(3,3, GameModel.BLACK);
+            assertTrue(fork.canPlay(3,3), "fork doesn't see the original's move");
+            assertEquals(0, fork.blackScore(), "fork black score unchanged");
+        }
+
+        @Test
+        @DisplayName("Copy of a forked position plays on independently")
+        void copyIsIndependent() {
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(1,1, GameModel.WHITE);
+            GameModel fork = model.snapshot();
+            GameModel copy = model.copy();
+            GameModel copyOfFork = fork.copy();
+            copy.makePlay(1,2, GameModel.WHITE);
+            copyOfFork.makePlay(3,3, GameModel.BLACK);
+            assertEquals(model.hash(), fork.hash(), "copies don't touch the fork or original");
+            assertTrue(model.canPlay(1,2), "original cell still empty");
+            assertTrue(fork.canPlay(3,3), "fork cell still empty");
+            assertEquals(1, copy.whiteScore(), "copy joins the islands");
+            assertEquals(1, copyOfFork.blackScore(), "copy of the fork plays on");
+            assertEquals(model.emptyCells().count() - 1, copyOfFork.emptyCells().count(), "copy tracks empty cells");
+        }
+
+        @Test
+        @DisplayName("Snapshots of a large board finish their own games on other threads")
+        void snapshotsOnThreads() throws InterruptedException {
+            GameModel model = new GameModel(LARGE * 4);
+            SplittableRandom random = new SplittableRandom(1);
+            for (int i = 0; i < 1000; i++) {
+                int index = model.randomEmptyCell(random);
+                model.makePlay(index / model.size, index % model.size, i % 2 == 0);
+            }
+            int empty = model.emptyCells().count();
+            GameModel[] forks = new GameModel[4];
+            Thread[] threads = new Thread[forks.length];
+            for (int i = 0; i < forks.length; i++) {
+                GameModel fork = model.snapshot();
+                SplittableRandom forkRandom = new SplittableRandom(i);
+                forks[i] = fork;
+                threads[i] = new Thread(()->{
+                    boolean color = GameModel.WHITE;
+                    boolean done = false;
+                    while (!done) {
+                        int index = fork.randomEmptyCell(forkRandom);
+                        done = fork.makePlay(index / fork.size, index % fork.size, color);
+                        color = !color;
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (GameModel fork : forks) {
+                assertTrue(fork.isGameOver(), "every fork plays to the end");
+            }
+            assertFalse(model.isGameOver(), "original untouched");
+            assertEquals(empty, model.emptyCells().count(), "original keeps its empty cells");
+        }
+    }
+
+    @Nested
+    class OffHeapTests {
+
+        /**
+         * Play the same random moves on every model, taking some back, checking they agree throughout
+         */
+        private void playAlike(int size, long seed, GameModel... models) {
+            SplittableRandom random = new SplittableRandom(seed);
+            GameModel reference = models[0];
+            for (int move = 0; move < size * size; move++) {
+                int cell = reference.randomEmptyCell(new SplittableRandom(seed + move));
+                boolean clr = random.nextBoolean();
+                for (GameModel model : models) {
+                    assertEquals(cell, model.randomEmptyCell(new SplittableRandom(seed + move)), "same free cells");
+                    model.makePlay(cell / size, cell % size, clr);
+                }
+                if (move % 5 == 4) {
+                    for (GameModel model : models) {
+                        model.undo(2);
+                    }
+                }
+                for (GameModel model : models) {
+                    assertEquals(reference.whiteScore(), model.whiteScore(), "white score after " + move);
+                    assertEquals(reference.blackScore(), model.blackScore(), "black score after " + move);
+                    assertEquals(reference.isGameOver(), model.isGameOver(), "game over after " + move);
+                    assertEquals(reference.hash(), model.hash(), "hash after " + move);
+                    assertEquals(reference.emptyCells().count(), model.emptyCells().count(), "empty cells after " + move);
+                    assertEquals(reference.largestIsland(clr).map(Island::toString),
+                            model.largestIsland(clr).map(Island::toString), "largest island after " + move);
+                }
+                if (reference.emptyCells().count() == 0) {
+                    break;
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("An off-heap game plays exactly like a heap game")
+        void offHeapPlaysAlike() {
+            playAlike(MEDIUM, 1, new GameModel(MEDIUM), GameModel.offHeap(MEDIUM));
+        }
+
+        @Test
+        @DisplayName("A game mapped from a file plays exactly like a heap game")
+        void mappedPlaysAlike() throws Exception {
+            Path file = Files.createTempFile("board", ".map");
+            try {
+                Files.write(file, new byte[]{1, 2, 3});
+                GameModel mapped = GameModel.mapped(LARGE, file);
+                assertTrue(Files.size(file) >= (long) LARGE * LARGE * 8, "arrays mapped from the file");
+                playAlike(LARGE, 2, new GameModel(LARGE), mapped);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        @Test
+        @DisplayName("Snapshots and copies of an off-heap game play on independently")
+        void offHeapSnapshots() {
+            GameModel model = GameModel.offHeap(SMALL);
+            model.makePlay(2, 2, GameModel.WHITE);
+            GameModel snapshot = model.snapshot();
+            GameModel copy = model.copy();
+            snapshot.makePlay(1, 1, GameModel.BLACK);
+            copy.makePlay(0, 4, GameModel.WHITE);
+            assertTrue(model.canPlay(1, 1) && model.canPlay(0, 4), "original unchanged");
+            assertFalse(snapshot.canPlay(1, 1), "snapshot played");
+            assertTrue(snapshot.canPlay(0, 4), "snapshot doesn't see the copy");
+            assertEquals(2, copy.whiteScore(), "copy played");
+            model.reset();
+            assertEquals(0, model.whiteScore(), "reset");
+            assertTrue(model.canPlay(2, 2), "reset board is empty");
+            assertFalse(snapshot.canPlay(2, 2), "snapshot keeps its pieces");
+        }
+
+        @Test
+        @DisplayName("Boards too big to number in an int are refused")
+        void tooBig() {
+            assertThrows(IllegalArgumentException.class, () -> GameModel.offHeap(GameModel.MAX_SIZE + 1));
+        }
+    }
+
+    @Nested
+    class LoadTests {
+
+        /**
+         * Check that a loaded game has the same islands as one played move by move
+         */
+        private void assertSameGame(GameModel played, GameModel loaded) {
+            assertEquals(played.whiteScore(), loaded.whiteScore(), "white score");
+            assertEquals(played.blackScore(), loaded.blackScore(), "black score");
+            assertEquals(played.isGameOver(), loaded.isGameOver(), "game over");
+            assertEquals(played.hash(), loaded.hash(), "hash");
+            assertEquals(played.emptyCells().count(), loaded.emptyCells().count(), "empty cells");
+            for (boolean clr : new boolean[]{GameModel.WHITE, GameModel.BLACK}) {
+                assertEquals(played.largestIsland(clr).map(Island::getSize), loaded.largestIsland(clr).map(Island::getSize), "largest island");
+            }
+            int size = played.size;
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    assertEquals(played.canPlay(row, col), loaded.canPlay(row, col), "cell " + row + "," + col);
+                    // roots may differ, everything else must match
+                    assertEquals(played.islandAt(row, col).map(this::describe), loaded.islandAt(row, col).map(this::describe),
+                            "island at " + row + "," + col);
+                }
+            }
+        }
+
+        private List<Object> describe(Island island) {
+            return List.of(island.getColor(), island.getSize(), island.getLiberties(),
+                    island.getMinRow(), island.getMaxRow(), island.getMinCol(), island.getMaxCol());
+        }
+
+        /**
+         * Play random moves, returning the board they make
+         */
+        private byte[] playRandom(GameModel model, int moves, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            byte[] board = new byte[model.size * model.size];
+            for (int move = 0; move < moves; move++) {
+                int cell = model.randomEmptyCell(random);
+                boolean clr = random.nextBoolean();
+                model.makePlay(cell / model.size, cell % model.size, clr);
+                board[cell] = clr == GameModel.WHITE ? (byte) 1 : (byte) -1;
+            }
+            return board;
+        }
+
+        @ParameterizedTest
+        @ValueSource(ints = {1, 5, 11, 64, 150})
+        @DisplayName("Loading a board gives the same game as playing its pieces")
+        void loadMatchesPlay(int size) {
+            for (int fill : new int[]{size * size / 3, size * size}) {
+                GameModel played = new GameModel(size);
+                byte[] board = playRandom(played, fill, size + fill);
+                assertSameGame(played, GameModel.load(board));
+            }
+        }
+
+        @Test
+        @DisplayName("Islands crossing every strip boundary are joined")
+        void stripesAcrossStrips() {
+            int size = 300;
+            GameModel played = new GameModel(size);
+            byte[] board = new byte[size * size];
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    boolean clr = col % 2 == 0 ? GameModel.WHITE : GameModel.BLACK;
+                    played.makePlay(row, col, clr);
+                    board[row * size + col] = clr == GameModel.WHITE ? (byte) 1 : (byte) -1;
+                }
+            }
+            GameModel loaded = GameModel.load(board);
+            assertEquals(size / 2, loaded.whiteScore(), "one island per white column");
+            assertTrue(loaded.isGameOver(), "white columns join top and bottom");
+            assertSameGame(played, loaded);
+        }
+
+        @Test
+        @DisplayName("A loaded game plays on and undoes its own moves")
+        void playAfterLoad() {
+            GameModel played = new GameModel(MEDIUM);
+            byte[] board = playRandom(played, 40, 9);
+            GameModel loaded = GameModel.load(board);
+            assertEquals(0, loaded.moveCount(), "nothing to undo");
+            assertThrows(IllegalStateException.class, loaded::undo);
+            SplittableRandom random = new SplittableRandom(10);
+            for (int move = 0; move < 30; move++) {
+                int cell = played.randomEmptyCell(random);
+                boolean clr = move % 2 == 0;
+                played.makePlay(cell / MEDIUM, cell % MEDIUM, clr);
+                loaded.makePlay(cell / MEDIUM, cell % MEDIUM, clr);
+            }
+            assertSameGame(played, loaded);
+            played.undo(30);
+            loaded.undo(30);
+            assertSameGame(played, loaded);
+        }
+
+        @Test
+        @DisplayName("A bit board loads as the game it was copied from")
+        void fromBitBoard() {
+            GameModel played = new GameModel(LARGE);
+            playRandom(played, 300, 4);
+            assertSameGame(played, GameModel.fromBoard(BitBoard.of(played)));
+        }
+
+        @Test
+        @DisplayName("Boards that aren't square or hold other values are refused")
+        void invalidBoards() {
+            assertThrows(IllegalArgumentException.class, () -> GameModel.load(new byte[0]));
+            assertThrows(IllegalArgumentException.class, () -> GameModel.load(new byte[10]));
+            assertThrows(IllegalArgumentException.class, () -> GameModel.load(new byte[]{0, 1, 2, -1}));
+        }
+    }
+
+    @Nested
+    class HashTests {
+
+        @Test
+        @DisplayName("Transposed move orders hash the same")
+        void transpositionsHashTheSame() {
+            GameModel first = new GameModel(MEDIUM);
+            first.makePlay(1,1, GameModel.WHITE);
+            first.makePlay(2,2, GameModel.BLACK);
+            first.makePlay(3,3, GameModel.WHITE);
+            GameModel second = new GameModel(MEDIUM);
+            second.makePlay(3,3, GameModel.WHITE);
+            second.makePlay(2,2, GameModel.BLACK);
+            second.makePlay(1,1, GameModel.WHITE);
+            assertEquals(first.hash(), second.hash(), "same pieces, same hash");
+            assertNotEquals(first.hash(), new GameModel(MEDIUM).hash(), "different pieces, different hash");
+        }
+
+        @Test
+        @DisplayName("Colour changes the hash and undo restores it")
+        void undoRestoresHash() {
+            GameModel white = new GameModel(SMALL);
+            GameModel black = new GameModel(SMALL);
+            white.makePlay(2,2, GameModel.WHITE);
+            black.makePlay(2,2, GameModel.BLACK);
+            assertNotEquals(white.hash(), black.hash(), "colour is part of the key");
+            long before = white.hash();
+            white.makePlay(0,0, GameModel.BLACK);
+            white.undo();
+            assertEquals(before, white.hash(), "undo restores the hash");
+            assertEquals(before, white.snapshot().hash(), "snapshot keeps the hash");
+        }
+
+        @Test
+        @DisplayName("Transposition table returns what was stored")
+        void tableStoreAndProbe() {
+            TranspositionTable table = new TranspositionTable(1024);
+            GameModel model = new GameModel(SMALL);
+            model.makePlay(2,2, GameModel.WHITE);
+            assertEquals(TranspositionTable.MISS, table.probe(model.hash()), "empty table misses");
+            table.store(model.hash(), 5, TranspositionTable.LOWER_BOUND, 7, 0.25f);
+            long entry = table.probe(model.hash());
+            assertEquals(5, TranspositionTable.depth(entry));
+            assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+            assertEquals(7, TranspositionTable.move(entry));
+            assertEquals(0.25, TranspositionTable.value(entry), 0.0);
+
+            table.store(model.hash(), 3, TranspositionTable.EXACT, -1, 1f);
+            assertEquals(5, TranspositionTable.depth(table.probe(model.hash())), "shallower result doesn't replace deeper one");
+            table.store(model.hash(), 9, TranspositionTable.EXACT, -1, 1f);
+            assertEquals(-1, TranspositionTable.move(table.probe(model.hash())), "deeper result replaces");
+        }
+
+        @Test
+        @DisplayName("Full buckets keep the deepest entries")
+        void tableKeepsDeepEntries() {
+            TranspositionTable table = new TranspositionTable(4);
+            for (int key = 1; key <= 64; key++) {
+                table.store(key * 0x100000001L, key == 33 ? TranspositionTable.MAX_DEPTH : 1, TranspositionTable.EXACT, key, key);
+            }
+            assertEquals(33, TranspositionTable.move(table.probe(33 * 0x100000001L)), "deepest entry survives");
+        }
     }
 
     @Nested
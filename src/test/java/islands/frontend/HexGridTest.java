@@ -0,0 +1,121 @@
+package islands.frontend;
+
+import islands.middle.GameController;
+import org.junit.jupiter.api.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HexGridTest {
+
+    /**
+     * The hexagon a click falls in, by testing every hexagon in row order
+     */
+    private static Optional<Point> scan(HexGrid grid, int y, int x) {
+        for (int row = 0; row < grid.size; row++) {
+            for (int col = 0; col < grid.size; col++) {
+                if (grid.cellPolygon(row, col).contains(x, y)) {
+                    return Optional.of(new Point(col, row));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Test
+    @DisplayName("Picking agrees with testing every hexagon, on and off the board")
+    void pickMatchesScan() {
+        for (int size : new int[]{1, 5, 11}) {
+            HexGrid grid = new HexGrid(size);
+            for (int y = -20; y < Game.BOARD_HEIGHT + 20; y += 3) {
+                for (int x = -20; x < Game.BOARD_WIDTH + 20; x += 3) {
+                    assertEquals(scan(grid, y, x), grid.getHexDim(y, x), "size " + size + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Clicking a hexagon's centre picks that hexagon")
+    void centrePicksHexagon() {
+        HexGrid grid = new HexGrid(25);
+        for (int row = 0; row < grid.size; row++) {
+            for (int col = 0; col < grid.size; col++) {
+                Rectangle bounds = grid.cellPolygon(row, col).getBounds();
+                Optional<Point> picked = grid.getHexDim((int) bounds.getCenterY(), (int) bounds.getCenterX());
+                assertEquals(Optional.of(new Point(col, row)), picked, "centre of " + row + "," + col);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A colour change shows on the next paint")
+    void setColorRedrawsTile() {
+        HexGrid grid = new HexGrid(5);
+        grid.setSize(Game.BOARD_WIDTH, Game.BOARD_HEIGHT);
+        BufferedImage screen = new BufferedImage(Game.BOARD_WIDTH, Game.BOARD_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = screen.createGraphics();
+        grid.paintComponent(g);
+        Rectangle bounds = grid.cellPolygon(2, 3).getBounds();
+        int x = (int) bounds.getCenterX();
+        int y = (int) bounds.getCenterY();
+        assertEquals(Color.YELLOW.getRGB(), screen.getRGB(x, y), "tiles start yellow");
+
+        grid.setColor(2, 3, GameController.BLACK);
+        grid.paintComponent(g);
+        g.dispose();
+        assertEquals(Color.BLACK.getRGB(), screen.getRGB(x, y), "tile drawn black");
+    }
+
+    @Test
+    @DisplayName("Zoomed out to a pixel per cell, every cell is picked and drawn at its own pixel")
+    void pixelMode() {
+        HexGrid grid = new HexGrid(300);
+        grid.zoom(-100);
+        Dimension board = grid.getPreferredSize();
+        assertEquals(300, board.width, "one pixel per column");
+        grid.setSize(board);
+        for (int row = 0; row < grid.size; row++) {
+            for (int col = 0; col < grid.size; col++) {
+                Rectangle bounds = grid.cellBounds(row, col);
+                assertEquals(Optional.of(new Point(col, row)), grid.getHexDim(bounds.y, bounds.x), "cell " + row + "," + col);
+            }
+        }
+        grid.setColor(299, 0, GameController.WHITE);
+        BufferedImage screen = new BufferedImage(board.width, board.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = screen.createGraphics();
+        grid.paintComponent(g);
+        g.dispose();
+        Rectangle white = grid.cellBounds(299, 0);
+        Rectangle empty = grid.cellBounds(0, 0);
+        assertEquals(Color.WHITE.getRGB(), screen.getRGB(white.x, white.y), "played cell");
+        assertEquals(Color.YELLOW.getRGB(), screen.getRGB(empty.x, empty.y), "empty cell");
+    }
+
+    @Test
+    @DisplayName("Only the visible cells of a huge board are drawn")
+    void largeBoardPaintsViewport() {
+        HexGrid grid = new HexGrid(2500);
+        grid.zoom(5);
+        Dimension board = grid.getPreferredSize();
+        assertTrue(board.width > 10 * Game.BOARD_WIDTH, "board is far bigger than the window");
+        grid.setSize(board);
+        JViewport viewport = new JViewport();
+        viewport.setView(grid);
+        viewport.setSize(Game.BOARD_WIDTH, Game.BOARD_HEIGHT);
+        Rectangle cell = grid.cellBounds(1250, 1250);
+        viewport.setViewPosition(new Point(cell.x - 100, cell.y - 100));
+        grid.setColor(1250, 1250, GameController.BLACK);
+
+        BufferedImage screen = new BufferedImage(Game.BOARD_WIDTH, Game.BOARD_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = screen.createGraphics();
+        g.translate(-(cell.x - 100), -(cell.y - 100));
+        grid.paintComponent(g);
+        g.dispose();
+        assertEquals(Color.BLACK.getRGB(), screen.getRGB(100 + cell.width / 2, 100 + cell.height / 2), "played cell on screen");
+    }
+}
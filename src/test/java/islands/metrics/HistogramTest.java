@@ -0,0 +1,73 @@
+package islands.metrics;
+
+import org.junit.jupiter.api.*;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    @DisplayName("Small values are counted exactly")
+    void smallValuesExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.count(), "count");
+        assertEquals(50, histogram.percentile(0.5), "median");
+        assertEquals(99, histogram.percentile(0.99), "p99");
+        assertEquals(100, histogram.percentile(1.0), "max");
+        assertEquals(50.5, histogram.mean(), 1e-9, "mean");
+    }
+
+    @Test
+    @DisplayName("Large values are reported within the bucket precision")
+    void largeValuesWithinPrecision() {
+        Histogram histogram = new Histogram();
+        SplittableRandom random = new SplittableRandom(3);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong(1, 1L << 40);
+            histogram.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        for (double fraction : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long reported = histogram.percentile(fraction);
+            assertTrue(reported >= exact && reported <= exact + exact / 64, fraction + ": " + exact + " vs " + reported);
+        }
+        assertEquals(values[values.length - 1], histogram.max(), "max is exact");
+    }
+
+    @Test
+    @DisplayName("Every value falls in a bucket whose range holds it")
+    void bucketsCoverValues() {
+        long[] probes = {0, 1, 127, 128, 129, 255, 256, 1000, 1L << 20, (1L << 20) + 12345, Long.MAX_VALUE};
+        for (long value : probes) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(Histogram.highestInBucket(bucket) >= value, "upper bound of " + value);
+            assertTrue(bucket == 0 || Histogram.highestInBucket(bucket - 1) < value, "lower bound of " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("Negative values and fractions outside 0..1 are refused")
+    void invalidInput() {
+        Histogram histogram = new Histogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(1.5));
+    }
+
+    @Test
+    @DisplayName("Reset forgets everything")
+    void resetClears() {
+        Histogram histogram = new Histogram();
+        histogram.record(5000);
+        histogram.reset();
+        assertEquals(0, histogram.count(), "no values");
+        assertEquals(0, histogram.max(), "no max");
+        assertEquals(0, histogram.percentile(0.5), "no median");
+    }
+}
@@ -0,0 +1,70 @@
+package islands.metrics;
+
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveMetricsTest {
+
+    @Test
+    @DisplayName("Every measured move is counted with its unions and lookups")
+    void movesRecorded() {
+        MoveMetrics metrics = new MoveMetrics();
+        GameModel model = new GameModel(5);
+        for (int col = 0; col < 5; col++) {
+            metrics.makePlay(model, 0, col, GameModel.WHITE);
+        }
+        assertEquals(5, metrics.getMoves(), "moves counted");
+        // every stone after the first joins the previous one
+        assertEquals(1, metrics.unionsPerMove().max(), "one union per move");
+        assertEquals(0.8, metrics.getUnionsPerMoveMean(), 1e-9, "unions counted");
+        assertTrue(metrics.getMeanFindDepth() >= 0, "find depth measured");
+        assertTrue(metrics.getMakePlayMaxNanos() > 0, "latency measured");
+        assertEquals(model.findSteps(), metrics.findStepsPerMove().mean() * 5, 1e-9, "all lookups measured");
+    }
+
+    @Test
+    @DisplayName("A refused move isn't recorded")
+    void refusedMoveNotRecorded() {
+        MoveMetrics metrics = new MoveMetrics();
+        GameModel model = new GameModel(5);
+        metrics.makePlay(model, 2, 2, GameModel.WHITE);
+        assertThrows(IllegalArgumentException.class, () -> metrics.makePlay(model, 2, 2, GameModel.BLACK));
+        assertEquals(1, metrics.getMoves(), "only the legal move counted");
+    }
+
+    @Test
+    @DisplayName("Metrics can be read over JMX")
+    void publishedOverJmx() throws Exception {
+        MoveMetrics metrics = new MoveMetrics();
+        ObjectName name = metrics.register("test");
+        try {
+            metrics.makePlay(new GameModel(5), 1, 1, GameModel.BLACK);
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Moves"), "moves over JMX");
+            assertThrows(IllegalArgumentException.class, () -> new MoveMetrics().register("test"));
+        } finally {
+            metrics.unregister("test");
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name), "unregistered");
+    }
+
+    @Test
+    @DisplayName("The reporter prints the metrics")
+    void reporterPrints() {
+        MoveMetrics metrics = new MoveMetrics();
+        metrics.makePlay(new GameModel(5), 1, 1, GameModel.BLACK);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MetricsReporter reporter = new MetricsReporter(metrics, 1, TimeUnit.HOURS, new PrintStream(bytes, true));
+        reporter.close();
+        String text = bytes.toString();
+        assertTrue(text.contains("makePlay ns: count 1"), text);
+        assertTrue(text.contains("unions per move"), text);
+    }
+}
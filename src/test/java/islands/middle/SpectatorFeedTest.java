@@ -0,0 +1,297 @@
+package islands.middle;
+
+import islands.backend.BitBoard;
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectatorFeedTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private ExecutorService gameThread;
+    private ScheduledExecutorService scheduler;
+    private ServerSocketChannel listener;
+    private final List<Spectator> spectators = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        gameThread = Executors.newSingleThreadExecutor();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        listener = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Spectator spectator : spectators) {
+            spectator.close();
+        }
+        listener.close();
+        gameThread.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * One end of a loopback connection reading frames into a view, the other end subscribed to a feed
+     */
+    private class Spectator implements AutoCloseable {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        final SpectatorView view = new SpectatorView();
+
+        Spectator(SpectatorFeed feed) throws IOException {
+            channel = SocketChannel.open(listener.getLocalAddress());
+            channel.socket().setSoTimeout(50);
+            feed.subscribe(listener.accept());
+            spectators.add(this);
+        }
+
+        /**
+         * Read frames until the view satisfies a condition
+         */
+        void until(BooleanSupplier done, String message) throws IOException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            var stream = channel.socket().getInputStream();
+            byte[] chunk = new byte[4096];
+            while (!done.getAsBoolean()) {
+                assertTrue(System.currentTimeMillis() < deadline, message);
+                int read;
+                try {
+                    read = stream.read(chunk);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                assertTrue(read >= 0, "feed hung up: " + message);
+                in.put(chunk, 0, read);
+                in.flip();
+                view.read(in);
+                in.compact();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private <T> T onGame(Callable<T> task) throws Exception {
+        return gameThread.submit(task).get();
+    }
+
+    /**
+     * Play random moves, alternating colours, on the game's thread
+     */
+    private void playRandom(GameModel model, SplittableRandom random, int moves) throws Exception {
+        onGame(() -> {
+            for (int i = 0; i < moves && !model.isGameOver(); i++) {
+                int cell = model.randomEmptyCell(random);
+                model.makePlay(cell / model.size, cell % model.size, model.moveCount() % 2 == 0);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The view has the game's pieces and scores, taken on the game's thread
+     */
+    private void assertSameGame(GameModel model, SpectatorView view) throws Exception {
+        BitBoard board = onGame(() -> BitBoard.of(model));
+        assertEquals((int) onGame(model::whiteScore), view.whiteScore(), "white score");
+        assertEquals((int) onGame(model::blackScore), view.blackScore(), "black score");
+        assertEquals(onGame(model::isGameOver), view.isGameOver(), "game over");
+        for (int row = 0; row < model.size; row++) {
+            for (int col = 0; col < model.size; col++) {
+                assertEquals(board.has(row, col, GameModel.WHITE), view.has(row, col, GameModel.WHITE), row + "," + col);
+                assertEquals(board.has(row, col, GameModel.BLACK), view.has(row, col, GameModel.BLACK), row + "," + col);
+            }
+        }
+    }
+
+    private static BooleanSupplier scores(SpectatorView view, int white, int black) {
+        return () -> view.whiteScore() == white && view.blackScore() == black;
+    }
+
+    @Test
+    @DisplayName("Frames split anywhere are read whole, and moves before a keyframe are refused")
+    void readFrames() {
+        ByteBuffer frames = ByteBuffer.allocate(64);
+        frames.put(SpectatorFeed.KEYFRAME);
+        SpectatorFeed.writeVarint(frames, 3);
+        SpectatorFeed.writeVarint(frames, 0);
+        SpectatorFeed.writeVarint(frames, 1);
+        frames.put((byte) 0);
+        // cell 1 black, then cells 4 to 8 empty
+        frames.put((byte) (SpectatorFeed.BLACK_CELL << 2)).put((byte) 0).put((byte) 0);
+        frames.put(SpectatorFeed.MOVE);
+        SpectatorFeed.writeVarint(frames, 4 << 1 | 1);
+        frames.put(SpectatorFeed.SCORE);
+        SpectatorFeed.writeVarint(frames, 1);
+        SpectatorFeed.writeVarint(frames, 200);
+        frames.put(SpectatorFeed.OVER);
+        frames.flip();
+
+        SpectatorView view = new SpectatorView();
+        ByteBuffer in = ByteBuffer.allocate(64);
+        int applied = 0;
+        while (frames.hasRemaining()) {
+            in.put(frames.get());
+            in.flip();
+            applied += view.read(in);
+            in.compact();
+        }
+        assertEquals(4, applied, "four frames, one byte at a time");
+        assertEquals(3, view.getSize(), "size");
+        assertTrue(view.has(0, 1, GameModel.BLACK), "black piece from the keyframe");
+        assertTrue(view.has(1, 1, GameModel.WHITE), "white piece from the move");
+        assertEquals(1, view.whiteScore(), "white score");
+        assertEquals(200, view.blackScore(), "a two byte score");
+        assertTrue(view.isGameOver(), "over");
+        assertEquals(1, view.movesSinceKeyframe(), "one move since the keyframe");
+
+        ByteBuffer early = ByteBuffer.wrap(new byte[]{SpectatorFeed.MOVE, 2});
+        assertThrows(IllegalStateException.class, () -> new SpectatorView().read(early));
+        assertThrows(IllegalStateException.class, () -> new SpectatorView().read(ByteBuffer.wrap(new byte[]{99})));
+    }
+
+    @Test
+    @DisplayName("Every spectator follows the moves, undos and scores of a game")
+    void spectatorsFollow() throws Exception {
+        GameModel model = new GameModel(11);
+        SplittableRandom random = new SplittableRandom(25);
+        playRandom(model, random, 10);
+        try (SpectatorFeed feed = new SpectatorFeed(model, gameThread, scheduler)) {
+            List<Spectator> watching = List.of(new Spectator(feed), new Spectator(feed), new Spectator(feed));
+            for (Spectator spectator : watching) {
+                spectator.until(() -> spectator.view.keyframes() > 0, "first keyframe");
+                assertSameGame(model, spectator.view);
+            }
+
+            playRandom(model, random, 40);
+            onGame(() -> {
+                model.undo(3);
+                return null;
+            });
+            int white = onGame(model::whiteScore);
+            int black = onGame(model::blackScore);
+            for (Spectator spectator : watching) {
+                spectator.until(() -> spectator.view.movesSinceKeyframe() == 43, "every move and undo");
+                spectator.until(scores(spectator.view, white, black), "the scores");
+                assertSameGame(model, spectator.view);
+                assertEquals(1, spectator.view.keyframes(), "deltas only after the first keyframe");
+            }
+            assertEquals(3, feed.spectatorCount(), "three spectators");
+        }
+    }
+
+    @Test
+    @DisplayName("A late spectator starts from the latest keyframe instead of the first move")
+    void lateSpectator() throws Exception {
+        GameModel model = new GameModel(61);
+        SplittableRandom random = new SplittableRandom(7);
+        try (SpectatorFeed feed = new SpectatorFeed(model, gameThread, scheduler)) {
+            Spectator early = new Spectator(feed);
+            early.until(() -> early.view.keyframes() > 0, "first keyframe");
+            for (int i = 0; i < 10; i++) {
+                playRandom(model, random, 100);
+                Thread.sleep(SpectatorFeed.FRAME_MILLIS);
+            }
+            int moves = onGame(model::moveCount);
+            assertTrue(moves > 2 * SpectatorFeed.KEYFRAME_INTERVAL, "several keyframes' worth of moves, " + moves);
+            early.until(() -> pieces(early.view) == moves, "early spectator caught up");
+
+            Spectator late = new Spectator(feed);
+            late.until(() -> pieces(late.view) == moves, "late spectator caught up");
+            assertSameGame(model, late.view);
+            assertSameGame(model, early.view);
+            assertEquals(1, late.view.keyframes(), "one keyframe");
+            assertTrue(late.view.movesSinceKeyframe() < SpectatorFeed.KEYFRAME_INTERVAL,
+                    "at most a keyframe interval of moves, " + late.view.movesSinceKeyframe());
+            assertTrue(early.view.keyframes() > 1, "periodic keyframes");
+        }
+    }
+
+    private static int pieces(SpectatorView view) {
+        int count = 0;
+        for (int row = 0; row < view.getSize(); row++) {
+            for (int col = 0; col < view.getSize(); col++) {
+                if (view.has(row, col, GameModel.WHITE) || view.has(row, col, GameModel.BLACK)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("A reset clears every spectator's board, and spectators who hang up are dropped")
+    void resetAndHangUp() throws Exception {
+        GameModel model = new GameModel(9);
+        SplittableRandom random = new SplittableRandom(3);
+        try (SpectatorFeed feed = new SpectatorFeed(model, gameThread, scheduler)) {
+            Spectator staying = new Spectator(feed);
+            Spectator leaving = new Spectator(feed);
+            playRandom(model, random, 20);
+            staying.until(() -> pieces(staying.view) == 20, "the moves");
+            int keyframes = staying.view.keyframes();
+            onGame(() -> {
+                model.reset();
+                return null;
+            });
+            staying.until(() -> staying.view.keyframes() > keyframes, "a keyframe of the empty board");
+            assertEquals(0, pieces(staying.view), "cleared");
+            assertSameGame(model, staying.view);
+
+            leaving.close();
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (feed.spectatorCount() > 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "dropped");
+                playRandom(model, random, 1);
+                Thread.sleep(SpectatorFeed.FRAME_MILLIS);
+            }
+            int white = onGame(model::whiteScore);
+            int black = onGame(model::blackScore);
+            staying.until(scores(staying.view, white, black), "the rest still followed");
+        }
+    }
+
+    @Test
+    @DisplayName("A spectator who hangs up is dropped with no moves to send, one who sends something stays")
+    void hangUpWhileQuiet() throws Exception {
+        GameModel model = new GameModel(9);
+        try (SpectatorFeed feed = new SpectatorFeed(model, gameThread, scheduler)) {
+            Spectator talking = new Spectator(feed);
+            Spectator leaving = new Spectator(feed);
+            talking.until(() -> talking.view.keyframes() > 0, "first keyframe");
+            leaving.until(() -> leaving.view.keyframes() > 0, "first keyframe");
+            talking.channel.write(ByteBuffer.wrap("STATE 1\n".getBytes(StandardCharsets.US_ASCII)));
+            leaving.close();
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (feed.spectatorCount() > 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "dropped");
+                Thread.sleep(SpectatorFeed.FRAME_MILLIS);
+            }
+            playRandom(model, new SplittableRandom(5), 10);
+            talking.until(() -> pieces(talking.view) == 10, "the one who sent something still follows");
+            assertEquals(1, feed.spectatorCount(), "still watching");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package islands.middle;
+
+import org.junit.jupiter.api.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewUpdatesTest {
+
+    /**
+     * A view that records what it was sent and checks it is only called on the event thread
+     */
+    static class RecordingView implements GameController.ViewDelegate {
+        final List<Move> moves = new ArrayList<>();
+        int batches;
+        int scoreUpdates;
+        int whiteScore;
+        int blackScore;
+        String turn;
+        String winner;
+        boolean offEventThread;
+
+        private void check() {
+            offEventThread |= !SwingUtilities.isEventDispatchThread();
+        }
+
+        @Override
+        public void applyMoves(List<Move> played) {
+            check();
+            batches++;
+            moves.addAll(played);
+        }
+
+        @Override
+        public void displayTurn(String clr) {
+            check();
+            turn = clr;
+        }
+
+        @Override
+        public void setColor(int row, int col, int clr) {
+            fail("moves should arrive in batches");
+        }
+
+        @Override
+        public void listen(MouseListener ml) {
+        }
+
+        @Override
+        public Optional<Point> getHexDim(int y, int x) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void setTime(double ms) {
+            check();
+        }
+
+        @Override
+        public void setWinner(String name) {
+            check();
+            winner = name;
+        }
+
+        @Override
+        public void setScore(int white, int black) {
+            check();
+            scoreUpdates++;
+            whiteScore = white;
+            blackScore = black;
+        }
+    }
+
+    /**
+     * Wait for a pending frame to be flushed
+     */
+    private static void settle() throws Exception {
+        Thread.sleep(ViewUpdates.FRAME_MILLIS * 4);
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+
+    @Test
+    @DisplayName("A burst of moves reaches the view in order, in a few batches, with the latest score")
+    void burstIsCoalesced() throws Exception {
+        RecordingView view = new RecordingView();
+        ViewUpdates updates = new ViewUpdates(view);
+        for (int i = 0; i < 1000; i++) {
+            updates.move(i / 40, i % 40, i % 2 == 0 ? GameController.WHITE : GameController.BLACK);
+            updates.turn(i % 2 == 0 ? "Black" : "White");
+            updates.score(i, i + 1);
+        }
+        updates.winner("BLACK");
+        settle();
+
+        assertEquals(1000, view.moves.size(), "every move shown");
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i / 40, view.moves.get(i).getRow(), "moves in order");
+            assertEquals(i % 40, view.moves.get(i).getCol(), "moves in order");
+        }
+        assertTrue(view.batches <= 10, "moves batched, got " + view.batches);
+        assertTrue(view.scoreUpdates <= view.batches, "at most one score update per batch");
+        assertEquals(999, view.whiteScore, "latest white score");
+        assertEquals(1000, view.blackScore, "latest black score");
+        assertEquals("White", view.turn, "latest turn");
+        assertEquals("BLACK", view.winner, "winner shown");
+        assertFalse(view.offEventThread, "view only called on the event thread");
+    }
+
+    @Test
+    @DisplayName("Nothing reaches the view after cancel")
+    void cancelDropsUpdates() throws Exception {
+        RecordingView view = new RecordingView();
+        ViewUpdates updates = new ViewUpdates(view);
+        SwingUtilities.invokeAndWait(() -> {
+            updates.move(0, 0, GameController.WHITE);
+            updates.cancel();
+        });
+        updates.move(0, 1, GameController.BLACK);
+        settle();
+        assertTrue(view.moves.isEmpty(), "no moves shown");
+        assertEquals(0, view.scoreUpdates, "no score shown");
+    }
+}
@@ -0,0 +1,131 @@
+package islands.record;
+
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveTest {
+
+    private static final int GAMES = 20000;
+
+    private Path file;
+    private long whiteWins;
+    private long islands;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("archive", ".ihex");
+        Files.delete(file);
+        whiteWins = 0;
+        islands = 0;
+        try (RecordWriter writer = new RecordWriter(file)) {
+            for (long seed = 0; seed < GAMES; seed++) {
+                int size = seed % 2 == 0 ? 11 : 7;
+                int[] moves = new int[size * size];
+                boolean[] colors = new boolean[size * size];
+                GameModel model = RecordTest.playRandom(size, seed, moves, colors);
+                GameRecord.Result result = GameRecord.Result.of(model);
+                whiteWins += result == GameRecord.Result.WHITE ? 1 : 0;
+                islands += model.whiteScore() + model.blackScore();
+                writer.append(size, seed, result, moves, colors, model.moveCount());
+            }
+        }
+        assertTrue(Files.size(file) > 2 * GameArchive.SEGMENT_BYTES, "archive spans several segments");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("Records stream lazily in file order")
+    void recordsInOrder() throws IOException {
+        try (GameArchive archive = new GameArchive(file)) {
+            long[] next = {0};
+            archive.records().forEach(record -> assertEquals(next[0]++, record.getSeed(), "file order"));
+            assertEquals(GAMES, next[0], "every game");
+            assertEquals(GAMES, archive.count(), "count");
+            assertEquals(5, archive.records().skip(5).findFirst().orElseThrow().getSeed(), "skip");
+        }
+    }
+
+    @Test
+    @DisplayName("The stream splits along segments and a parallel stream sees every game once")
+    void parallelSegments() throws IOException {
+        try (GameArchive archive = new GameArchive(file)) {
+            Spliterator<GameRecord> all = archive.records().spliterator();
+            long size = all.estimateSize();
+            Spliterator<GameRecord> half = all.trySplit();
+            assertNotNull(half, "splits");
+            assertEquals(size, half.estimateSize() + all.estimateSize(), "exact sizes");
+            assertTrue(all.hasCharacteristics(Spliterator.SUBSIZED), "sized halves");
+
+            Set<Long> seeds = archive.records().parallel().map(GameRecord::getSeed).collect(Collectors.toSet());
+            assertEquals(GAMES, seeds.size(), "every game once");
+            assertEquals(archive.records().map(GameRecord::getSeed).collect(Collectors.toList()),
+                    archive.records().parallel().map(GameRecord::getSeed).collect(Collectors.toList()), "ordered");
+        }
+    }
+
+    @Test
+    @DisplayName("Replays reuse one model per size per thread")
+    void replayPoolsModels() throws IOException {
+        try (GameArchive archive = new GameArchive(file)) {
+            Set<GameModel> models = Collections.newSetFromMap(new IdentityHashMap<>());
+            long over = archive.replay((record, model) -> {
+                models.add(model);
+                return model.isGameOver();
+            }).filter(gameOver -> gameOver).count();
+            assertEquals(GAMES, over, "every replay reaches the end");
+            assertEquals(2, models.size(), "one model for each size");
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel stats agree with the games as played")
+    void stats() throws IOException {
+        try (GameArchive archive = new GameArchive(file)) {
+            ArchiveStats stats = archive.stats();
+            assertEquals(GAMES, stats.getGames(), "games");
+            assertEquals(Set.of(7, 11), stats.sizes(), "sizes");
+            assertEquals(whiteWins, stats.getWhiteWins(7) + stats.getWhiteWins(11), "white wins");
+            long counted = 0;
+            long positions = 0;
+            for (int size : stats.sizes()) {
+                assertEquals(GAMES / 2, stats.getGames(size), "games of size " + size);
+                assertEquals(stats.getGames(size), stats.getWhiteWins(size) + stats.getBlackWins(size) + stats.getTies(size), "results");
+                assertTrue(stats.meanMoves(size) > size && stats.meanMoves(size) <= size * size, "mean length");
+                for (int i = 0; i <= size * size; i++) {
+                    counted += i * stats.islandCount(size, i);
+                    positions += stats.islandCount(size, i);
+                }
+            }
+            assertEquals(islands, counted, "island totals");
+            assertEquals(2L * GAMES, positions, "a count per player per game");
+            assertTrue(stats.firstMoveWinRate() > 0 && stats.firstMoveWinRate() < 1, "first move rate");
+            assertTrue(stats.toString().contains("first mover"));
+        }
+    }
+
+    @Test
+    @DisplayName("An empty archive streams nothing")
+    void emptyArchive() throws IOException {
+        Files.delete(file);
+        new RecordWriter(file).close();
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(0, archive.count(), "no games");
+            assertEquals(0, archive.stats().getGames(), "no stats");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package islands.record;
+
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("games", ".ihex");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Play a random game to the end, writing down its moves
+     */
+    static GameModel playRandom(int size, long seed, int[] moves, boolean[] colors) {
+        GameModel model = new GameModel(size);
+        SplittableRandom random = new SplittableRandom(seed);
+        boolean clr = GameModel.WHITE;
+        int count = 0;
+        boolean over = false;
+        while (!over) {
+            int index = model.randomEmptyCell(random);
+            moves[count] = index;
+            colors[count++] = clr;
+            over = model.makePlay(index / size, index % size, clr);
+            clr = !clr;
+        }
+        return model;
+    }
+
+    @Test
+    @DisplayName("Games read back with the same moves and replay to the same position")
+    void roundTrip() throws IOException {
+        int size = 11;
+        int[] moves = new int[size * size];
+        boolean[] colors = new boolean[size * size];
+        try (RecordWriter writer = new RecordWriter(file)) {
+            for (long seed = 0; seed < 200; seed++) {
+                GameModel model = playRandom(size, seed, moves, colors);
+                writer.append(size, seed, GameRecord.Result.of(model), moves, colors, model.moveCount());
+            }
+            assertEquals(200, writer.getGames(), "games written");
+        }
+        assertTrue(Files.size(file) < 200 * size * size * 2, "moves take under two bytes each");
+
+        GameModel replayed = new GameModel(size);
+        try (RecordReader reader = new RecordReader(file)) {
+            for (long seed = 0; seed < 200; seed++) {
+                GameRecord record = reader.read();
+                GameModel played = playRandom(size, seed, moves, colors);
+                assertEquals(seed, record.getSeed(), "seed");
+                assertEquals(size, record.getSize(), "size");
+                assertEquals(GameRecord.Result.of(played), record.getResult(), "result");
+                assertArrayEquals(java.util.Arrays.copyOf(moves, played.moveCount()), record.moves(), "moves of game " + seed);
+                record.replay(replayed);
+                assertEquals(played.hash(), replayed.hash(), "same position");
+                assertEquals(played.whiteScore(), replayed.whiteScore(), "same white score");
+                assertTrue(replayed.isGameOver(), "replay ends the game");
+            }
+            assertNull(reader.read(), "no more games");
+        }
+    }
+
+    @Test
+    @DisplayName("Appending to an archive keeps its games, and records copy across archives")
+    void appendAndCopy() throws IOException {
+        int[] moves = {0, 24, 12, 3};
+        boolean[] colors = {GameModel.WHITE, GameModel.BLACK, GameModel.WHITE, GameModel.BLACK};
+        try (RecordWriter writer = new RecordWriter(file)) {
+            writer.append(5, 1, GameRecord.Result.UNFINISHED, moves, colors, 4);
+        }
+        try (RecordWriter writer = new RecordWriter(file)) {
+            writer.append(5, 2, GameRecord.Result.UNFINISHED, moves, colors, 2);
+        }
+        Path copy = Files.createTempFile("copy", ".ihex");
+        try {
+            try (RecordReader reader = new RecordReader(file); RecordWriter writer = new RecordWriter(copy)) {
+                for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                    writer.append(record);
+                }
+            }
+            try (RecordReader reader = new RecordReader(copy)) {
+                GameRecord first = reader.read();
+                GameRecord second = reader.read();
+                assertNull(reader.read(), "two games");
+                assertArrayEquals(moves, first.moves(), "first game's moves");
+                assertEquals(GameModel.BLACK, first.colors()[3], "colours kept");
+                assertEquals(2, second.getSeed(), "second game's seed");
+                assertArrayEquals(new int[]{0, 24}, second.moves(), "second game's moves");
+            }
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    @Test
+    @DisplayName("Moves far apart on a large board are kept")
+    void largeBoard() throws IOException {
+        int size = 2500;
+        int[] moves = {size * size - 1, 0, size * size / 2, 1, size * size - 2};
+        boolean[] colors = new boolean[moves.length];
+        try (RecordWriter writer = new RecordWriter(file)) {
+            writer.append(size, -7, GameRecord.Result.UNFINISHED, moves, colors, moves.length);
+        }
+        try (RecordReader reader = new RecordReader(file)) {
+            GameRecord record = reader.read();
+            assertArrayEquals(moves, record.moves(), "moves");
+            assertEquals(-7, record.getSeed(), "negative seed");
+            GameModel model = record.replay(new GameModel(size));
+            assertEquals(0, model.whiteScore(), "all black");
+            assertEquals(3, model.blackScore(), "both corners' pairs joined");
+        }
+    }
+
+    @Test
+    @DisplayName("Files that aren't archives, cut short games and moves off the board are refused")
+    void invalidInput() throws IOException {
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6});
+        assertThrows(IOException.class, () -> new RecordReader(file));
+        assertThrows(IOException.class, () -> new RecordWriter(file));
+        Files.delete(file);
+
+        try (RecordWriter writer = new RecordWriter(file)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.append(5, 0, GameRecord.Result.TIE, new int[]{25}, new boolean[1], 1));
+            writer.append(5, 0, GameRecord.Result.TIE, new int[]{1, 2, 3}, new boolean[3], 3);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        try (RecordReader reader = new RecordReader(file)) {
+            assertThrows(IOException.class, reader::read);
+        }
+    }
+}
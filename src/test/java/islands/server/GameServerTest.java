@@ -0,0 +1,188 @@
+package islands.server;
+
+import islands.backend.GameModel;
+import islands.middle.SpectatorView;
+import org.junit.jupiter.api.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+
+    private GameServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new GameServer(0).start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * A line at a time client
+     */
+    private class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII);
+        }
+
+        String ask(String request) throws IOException {
+            out.println(request);
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A game is created, played to the end and closed over the socket")
+    void playOneGame() throws IOException {
+        try (Client client = new Client()) {
+            String id = client.ask("NEW 2").split(" ")[1];
+            assertEquals(1, server.gameCount(), "one game open");
+            assertEquals("OK 1 0", client.ask("PLAY " + id + " 0 0"), "white plays");
+            assertEquals("OK 1 1", client.ask("PLAY " + id + " 0 1"), "black plays");
+            assertEquals("STATE WHITE 2 1 1 PLAYING", client.ask("STATE " + id), "state");
+            assertEquals("OVER TIE 1 1", client.ask("PLAY " + id + " 1 0"), "white joins top and bottom, a tie on islands");
+            assertEquals("ERR game over", client.ask("PLAY " + id + " 1 1"), "no moves after the end");
+            assertEquals("CLOSED " + id, client.ask("CLOSE " + id), "closed");
+            assertEquals(0, server.gameCount(), "no games open");
+            assertEquals("BYE", client.ask("QUIT"), "quit");
+        }
+    }
+
+    @Test
+    @DisplayName("Bad requests get an error and leave the connection open")
+    void badRequests() throws IOException {
+        try (Client client = new Client()) {
+            assertEquals("ERR unknown request JUMP", client.ask("JUMP"));
+            assertEquals("ERR missing argument", client.ask("NEW"));
+            assertEquals("ERR not a number", client.ask("NEW big"));
+            assertEquals("ERR Invalid board size", client.ask("NEW 0"));
+            assertEquals("ERR no game 99", client.ask("PLAY 99 0 0"));
+            String id = client.ask("NEW 3").split(" ")[1];
+            assertEquals("ERR Invalid Row or Column", client.ask("PLAY " + id + " 3 0"));
+            client.ask("PLAY " + id + " 1 1");
+            assertEquals("ERR Position already played", client.ask("PLAY " + id + " 1 1"));
+            assertEquals("STATE BLACK 1 1 0 PLAYING", client.ask("STATE " + id), "errors don't pass the turn");
+        }
+    }
+
+    @Test
+    @DisplayName("Connections racing on one game each get their own move played")
+    void sharedGame() throws Exception {
+        int clients = 8;
+        int movesEach = 10;
+        String id;
+        try (Client client = new Client()) {
+            id = client.ask("NEW 100").split(" ")[1];
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        List<java.util.concurrent.Future<Integer>> played = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int row = c;
+            played.add(pool.submit(() -> {
+                int ok = 0;
+                try (Client client = new Client()) {
+                    go.await();
+                    for (int col = 0; col < movesEach; col++) {
+                        ok += client.ask("PLAY " + id + " " + row + " " + col * 2).startsWith("OK") ? 1 : 0;
+                    }
+                }
+                return ok;
+            }));
+        }
+        go.countDown();
+        int total = 0;
+        for (java.util.concurrent.Future<Integer> moves : played) {
+            total += moves.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertEquals(clients * movesEach, total, "every move played");
+        try (Client client = new Client()) {
+            String[] state = client.ask("STATE " + id).split(" ");
+            assertEquals(String.valueOf(clients * movesEach), state[2], "the model saw every move");
+        }
+    }
+
+    @Test
+    @DisplayName("Spectators who WATCH a game are sent its moves and scores, and hung up on when it closes")
+    void watchGame() throws IOException {
+        try (Client player = new Client();
+             Socket spectator = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            String id = player.ask("NEW 2").split(" ")[1];
+            assertEquals("OK 1 0", player.ask("PLAY " + id + " 0 0"), "white plays before anyone watches");
+            assertEquals("ERR no game 99", server.handle("WATCH 99"), "no such game");
+
+            spectator.setSoTimeout(10_000);
+            InputStream in = spectator.getInputStream();
+            spectator.getOutputStream().write(("WATCH " + id + "\n").getBytes(StandardCharsets.US_ASCII));
+            StringBuilder reply = new StringBuilder();
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                reply.append((char) b);
+            }
+            assertEquals("WATCHING " + id, reply.toString(), "watching");
+
+            assertEquals("OK 1 1", player.ask("PLAY " + id + " 0 1"), "black plays");
+            assertEquals("OVER TIE 1 1", player.ask("PLAY " + id + " 1 0"), "white wins on edges");
+            SpectatorView view = new SpectatorView();
+            ByteBuffer frames = ByteBuffer.allocate(4096);
+            while (!view.isGameOver()) {
+                int b = in.read();
+                assertTrue(b >= 0, "the feed ended early");
+                frames.put((byte) b).flip();
+                view.read(frames);
+                frames.compact();
+            }
+            assertTrue(view.has(0, 0, GameModel.WHITE), "the move from before watching, from the keyframe");
+            assertTrue(view.has(0, 1, GameModel.BLACK), "black's move");
+            assertTrue(view.has(1, 0, GameModel.WHITE), "white's move");
+            assertEquals(1, view.whiteScore(), "white score");
+            assertEquals(1, view.blackScore(), "black score");
+
+            assertEquals("CLOSED " + id, player.ask("CLOSE " + id), "closed");
+            assertEquals(-1, in.read(), "spectator hung up on");
+        }
+    }
+
+    @Test
+    @DisplayName("The load generator plays every game to the end and measures each move")
+    void loadGenerator() throws IOException {
+        LoadReport report = new LoadGenerator(server.getPort(), 7).run(16, 5, 1);
+        assertEquals(80, report.getGames(), "games");
+        assertTrue(report.getMoves() >= 80 * 7, "every game played out");
+        assertEquals(report.getMoves(), report.getLatencyNanos().count(), "a latency per move");
+        assertEquals(report.getMoves(), server.getMetrics().getMoves(), "server saw every move");
+        assertTrue(report.movesPerSecond() > 0, "throughput");
+        assertEquals(0, server.gameCount(), "every game closed");
+        assertTrue(report.toString().contains("moves/sec"));
+    }
+}
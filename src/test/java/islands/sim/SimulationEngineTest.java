@@ -0,0 +1,46 @@
+package islands.sim;
+
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationEngineTest {
+
+    final int SMALL = 5;
+    final int MEDIUM = 11;
+
+    @Test
+    @DisplayName("Every game is played and has a result")
+    void everyGameCounted() {
+        SimulationReport report = new SimulationEngine(MEDIUM).run(500, 1);
+        assertEquals(500, report.getGames(), "all games played");
+        assertEquals(500, report.getWhiteWins() + report.getBlackWins() + report.getTies(), "every game has a result");
+        assertTrue(report.meanMoves() >= MEDIUM && report.meanMoves() <= MEDIUM * MEDIUM, "a game needs at least size moves");
+        assertTrue(report.movesPercentile(0.5) <= report.movesPercentile(1.0), "median can't exceed max");
+    }
+
+    @Test
+    @DisplayName("A seed gives the same results on any number of threads")
+    void seededRunsAreRepeatable() {
+        SimulationEngine single = new SimulationEngine(SMALL, MovePolicy.random(), MovePolicy.random(), new ForkJoinPool(1));
+        SimulationEngine many = new SimulationEngine(SMALL, MovePolicy.random(), MovePolicy.random(), new ForkJoinPool(4));
+        SimulationReport first = single.run(1000, 99);
+        SimulationReport second = many.run(1000, 99);
+        assertEquals(first.getWhiteWins(), second.getWhiteWins(), "same white wins");
+        assertEquals(first.getBlackWins(), second.getBlackWins(), "same black wins");
+        assertEquals(first.meanMoves(), second.meanMoves(), 0.0, "same game lengths");
+    }
+
+    @Test
+    @DisplayName("Play out ends the game")
+    void playOutFinishesGame() {
+        GameModel model = new GameModel(MEDIUM);
+        int moves = SimulationEngine.playOut(model, MovePolicy.random(), MovePolicy.random(), GameModel.WHITE, new SplittableRandom(3));
+        assertTrue(model.isGameOver(), "play out runs until the game is over");
+        assertEquals(MEDIUM * MEDIUM - moves, model.emptyCells().count(), "one cell per move");
+    }
+}
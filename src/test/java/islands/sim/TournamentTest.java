@@ -0,0 +1,106 @@
+package islands.sim;
+
+import islands.backend.GameModel;
+import org.junit.jupiter.api.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+
+    final int SMALL = 7;
+
+    @Test
+    @DisplayName("Every pair plays its games and every game has a result")
+    void everyGameCounted() {
+        List<Player> players = List.of(Player.random(), Player.greedy(), Player.search(20));
+        TournamentResult result = new Tournament(SMALL, players, 10).run(1);
+        assertEquals(30, result.getGames(), "three pairs of ten");
+        for (int i = 0; i < players.size(); i++) {
+            assertEquals(20, result.getGames(i), "each player meets two others");
+            assertEquals(result.getGames(i), result.getWins(i) + result.getLosses(i) + result.getTies(i), "results add up");
+        }
+        double mean = (result.getElo(0) + result.getElo(1) + result.getElo(2)) / 3;
+        assertEquals(1500, mean, 1e-6, "ratings average 1500");
+    }
+
+    @Test
+    @DisplayName("Players take turns moving first")
+    void coloursSwap() {
+        AtomicInteger firstA = new AtomicInteger();
+        AtomicInteger firstB = new AtomicInteger();
+        Player a = Player.of("a", (model, clr, random) -> {
+            if (model.moveCount() == 0) {
+                firstA.incrementAndGet();
+            }
+            return model.randomEmptyCell(random);
+        });
+        Player b = Player.of("b", (model, clr, random) -> {
+            if (model.moveCount() == 0) {
+                firstB.incrementAndGet();
+            }
+            return model.randomEmptyCell(random);
+        });
+        new Tournament(SMALL, List.of(a, b), 10).run(5);
+        assertEquals(5, firstA.get(), "a moves first in half the games");
+        assertEquals(5, firstB.get(), "b moves first in the other half");
+    }
+
+    @Test
+    @DisplayName("A seed gives the same results on any number of threads")
+    void seededRunsAreRepeatable() {
+        List<Player> players = List.of(Player.random(), Player.greedy());
+        TournamentResult single = new Tournament(SMALL, players, 200, new ForkJoinPool(1)).run(42);
+        TournamentResult many = new Tournament(SMALL, players, 200, new ForkJoinPool(4)).run(42);
+        assertEquals(single.getWins(0, 1), many.getWins(0, 1), "same wins");
+        assertEquals(single.getTies(0), many.getTies(0), "same ties");
+        assertEquals(single.getElo(1), many.getElo(1), 1e-9, "same ratings");
+    }
+
+    @Test
+    @DisplayName("Greedy play outrates random play")
+    void greedyBeatsRandom() {
+        TournamentResult result = new Tournament(SMALL, List.of(Player.random(), Player.greedy()), 200).run(7);
+        assertTrue(result.getElo(1) > result.getElo(0), "greedy rated above random\n" + result);
+        assertTrue(result.getWins(1, 0) > result.getWins(0, 1), "greedy wins more");
+        StringWriter table = new StringWriter();
+        result.writeTable(new PrintWriter(table));
+        assertTrue(table.toString().startsWith("rank,player,elo"), "csv header");
+        assertTrue(table.toString().contains("1,greedy,"), "greedy ranked first");
+    }
+
+    @Test
+    @DisplayName("Greedy looks ahead without changing the position")
+    void greedyLeavesPosition() {
+        GameModel model = new GameModel(SMALL);
+        SplittableRandom random = new SplittableRandom(3);
+        Player greedy = Player.greedy();
+        for (int i = 0; i < 10; i++) {
+            long hash = model.hash();
+            int moves = model.moveCount();
+            boolean clr = i % 2 == 0;
+            int cell = greedy.chooseMove(model, clr, random);
+            assertEquals(hash, model.hash(), "same position");
+            assertEquals(moves, model.moveCount(), "no moves left behind");
+            assertTrue(model.canPlay(cell / SMALL, cell % SMALL), "a legal move");
+            model.makePlay(cell / SMALL, cell % SMALL, clr);
+        }
+    }
+
+    @Test
+    @DisplayName("Search is repeatable for a given source of randomness")
+    void searchRepeatable() {
+        GameModel model = new GameModel(SMALL);
+        Player search = Player.search(100);
+        int first = search.chooseMove(model, GameModel.WHITE, new SplittableRandom(9));
+        int second = search.chooseMove(model, GameModel.WHITE, new SplittableRandom(9));
+        assertEquals(first, second, "same move");
+        assertEquals(0, model.moveCount(), "position untouched");
+    }
+}